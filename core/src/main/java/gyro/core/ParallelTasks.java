@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import gyro.util.Bug;
+
+/**
+ * Runs tasks concurrently on a {@link ForkJoinPool} with the current {@link GyroUI}, and rethrows their errors as
+ * if they were run on the calling thread.
+ */
+public class ParallelTasks {
+
+    // Shared so that nested tasks run in the same bounded pool, where joining them from a worker thread compensates
+    // for the blocked thread instead of requiring a new pool for every call.
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Runs the given {@code tasks} concurrently and returns their results in the same order.
+     *
+     * <p>All tasks are allowed to finish before this method returns, even when one of them fails, and the error of
+     * the first failed task in order is thrown.</p>
+     */
+    public static <T> List<T> supplyAll(List<? extends Supplier<T>> tasks) {
+        GyroUI ui = GyroCore.ui();
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+
+        try {
+            for (Supplier<T> task : tasks) {
+                futures.add(CompletableFuture.supplyAsync(withUi(ui, task), POOL));
+            }
+
+            List<T> results = new ArrayList<>();
+
+            for (CompletableFuture<T> future : futures) {
+                results.add(join(future));
+            }
+
+            return results;
+
+        } finally {
+            awaitAll(futures);
+        }
+    }
+
+    /**
+     * Returns a task that runs the given {@code task} with the given {@code ui}, if any, as the current UI.
+     */
+    public static <T> Supplier<T> withUi(GyroUI ui, Supplier<T> task) {
+        if (ui == null) {
+            return task;
+        }
+
+        return () -> {
+            GyroCore.pushUi(ui);
+
+            try {
+                return task.get();
+
+            } finally {
+                GyroCore.popUi();
+            }
+        };
+    }
+
+    /**
+     * Waits for the given {@code future} and returns its result, or throws the error that it completed with.
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+
+        } catch (CompletionException error) {
+            Throwable cause = error.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+
+            } else {
+                throw new Bug(cause);
+            }
+        }
+    }
+
+    /**
+     * Waits for all of the given {@code futures} to complete, ignoring their errors.
+     */
+    public static void awaitAll(Collection<? extends CompletableFuture<?>> futures) {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).exceptionally(e -> null).join();
+    }
+
+}
@@ -19,18 +19,28 @@ package gyro.core;
 import java.beans.BeanInfo;
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.primitives.Primitives;
 import gyro.util.Bug;
 import org.apache.commons.lang3.StringUtils;
 
 public class Reflections {
 
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
     private static final LoadingCache<ClassLoader, LoadingCache<String, String>> NAMESPACES_BY_LOADER = CacheBuilder.newBuilder()
         .weakKeys()
         .build(new CacheLoader<ClassLoader, LoadingCache<String, String>>() {
@@ -137,4 +147,135 @@ public class Reflections {
         }
     }
 
+    /**
+     * Returns a function that calls the given getter {@code method} on its argument, with the same error handling as
+     * {@link #invoke}.
+     *
+     * <p>The function is generated through {@link LambdaMetafactory} when the method is public and visible from this
+     * class, so that it can be inlined like a direct call. Otherwise, it falls back to a {@link MethodHandle}.</p>
+     */
+    public static Function<Object, Object> getter(Method method) {
+        try {
+            MethodHandle handle = unreflect(method);
+
+            if (isLinkable(method)) {
+                @SuppressWarnings("unchecked")
+                Function<Object, Object> f = (Function<Object, Object>) LambdaMetafactory.metafactory(
+                    LOOKUP,
+                    "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(Primitives.wrap(method.getReturnType()), method.getDeclaringClass()))
+                    .getTarget()
+                    .invokeExact();
+
+                return object -> {
+                    try {
+                        return f.apply(object);
+
+                    } catch (Throwable error) {
+                        throw rethrow(error);
+                    }
+                };
+
+            } else {
+                MethodHandle h = handle.asType(MethodType.methodType(Object.class, Object.class));
+
+                return object -> {
+                    try {
+                        return h.invokeExact(object);
+
+                    } catch (Throwable error) {
+                        throw rethrow(error);
+                    }
+                };
+            }
+
+        } catch (Throwable error) {
+            throw new Bug(error);
+        }
+    }
+
+    /**
+     * Returns a consumer that calls the given setter {@code method} on its first argument with the second, with the
+     * same error handling as {@link #invoke}.
+     *
+     * @see #getter
+     */
+    public static BiConsumer<Object, Object> setter(Method method) {
+        try {
+            MethodHandle handle = unreflect(method);
+
+            if (isLinkable(method)) {
+                @SuppressWarnings("unchecked")
+                BiConsumer<Object, Object> c = (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(
+                    LOOKUP,
+                    "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class),
+                    handle,
+                    MethodType.methodType(
+                        void.class,
+                        method.getDeclaringClass(),
+                        Primitives.wrap(method.getParameterTypes()[0])))
+                    .getTarget()
+                    .invokeExact();
+
+                return (object, value) -> {
+                    try {
+                        c.accept(object, value);
+
+                    } catch (Throwable error) {
+                        throw rethrow(error);
+                    }
+                };
+
+            } else {
+                MethodHandle h = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+                return (object, value) -> {
+                    try {
+                        h.invokeExact(object, value);
+
+                    } catch (Throwable error) {
+                        throw rethrow(error);
+                    }
+                };
+            }
+
+        } catch (Throwable error) {
+            throw new Bug(error);
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+        method.setAccessible(true);
+        return LOOKUP.unreflect(method);
+    }
+
+    // Generated lambdas are defined next to this class, so they can only call public methods on classes that this
+    // class loader resolves to the same class, which excludes most plugin classes.
+    private static boolean isLinkable(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+
+        if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+            return false;
+        }
+
+        try {
+            return Class.forName(declaringClass.getName(), false, Reflections.class.getClassLoader()) == declaringClass;
+
+        } catch (ClassNotFoundException | LinkageError error) {
+            return false;
+        }
+    }
+
+    // Same as how invoke handles the cause of an InvocationTargetException.
+    private static RuntimeException rethrow(Throwable error) {
+        return error instanceof RuntimeException
+            ? (RuntimeException) error
+            : new GyroException(error);
+    }
+
 }
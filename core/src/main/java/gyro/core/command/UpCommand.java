@@ -23,6 +23,7 @@ import gyro.core.GyroUI;
 import gyro.core.RemoteStateBackend;
 import gyro.core.diff.Diff;
 import gyro.core.diff.Retry;
+import gyro.core.scope.EvaluationSettings;
 import gyro.core.scope.RootScope;
 import gyro.core.scope.State;
 import io.airlift.airline.Command;
@@ -36,6 +37,9 @@ public class UpCommand extends AbstractConfigCommand {
     @Option(name = "--skip-version-check")
     public boolean skipVersionCheck;
 
+    @Option(name = "--parallelism", description = "Maximum number of independent resources to change at once")
+    public int parallelism = 1;
+
     @Override
     public void doExecute(RootScope current, RootScope pending, State state) throws Exception {
         if (!skipVersionCheck) {
@@ -51,6 +55,8 @@ public class UpCommand extends AbstractConfigCommand {
                 current.findSortedResourcesIn(current.getLoadFiles()),
                 pending.findSortedResourcesIn(pending.getLoadFiles()));
 
+            diff.setParallel(pending.getSettings(EvaluationSettings.class).isParallelDiff());
+            diff.setParallelism(parallelism);
             diff.diff();
 
             if (!diff.write(ui)) {
@@ -76,22 +82,26 @@ public class UpCommand extends AbstractConfigCommand {
             } catch (Retry error) {
                 ui.write("\n@|bold,white Relooking for changes after workflow...\n\n|@");
 
+                // Only the state files changed, so reuse the rest from the previous evaluations.
+                RootScope oldCurrent = current;
+                RootScope oldPending = pending;
+
                 current = new RootScope(
-                    current.getFile(),
-                    current.getBackend(),
-                    current.getRemoteStateBackend(),
+                    oldCurrent.getFile(),
+                    oldCurrent.getBackend(),
+                    oldCurrent.getRemoteStateBackend(),
                     null,
-                    current.getLoadFiles());
+                    oldCurrent.getLoadFiles());
 
-                current.evaluate();
+                current.evaluate(oldCurrent);
 
                 pending = new RootScope(
-                    pending.getFile(),
-                    pending.getBackend(),
+                    oldPending.getFile(),
+                    oldPending.getBackend(),
                     current,
-                    pending.getLoadFiles());
+                    oldPending.getLoadFiles());
 
-                pending.evaluate();
+                pending.evaluate(oldPending);
                 pending.validate();
 
                 state = new State(current, pending, state.isTest());
@@ -17,18 +17,26 @@
 package gyro.core.control;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 import gyro.core.GyroException;
 import gyro.core.Type;
 import gyro.core.directive.DirectiveProcessor;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.Resource;
+import gyro.core.scope.FileScope;
+import gyro.core.scope.RootScope;
 import gyro.core.scope.Scope;
 import gyro.lang.ast.Node;
 import gyro.lang.ast.block.DirectiveNode;
-import gyro.util.CascadingMap;
+import gyro.util.LayeredMap;
 
 @Type("for")
 public class ForDirectiveProcessor extends DirectiveProcessor<Scope> {
@@ -36,16 +44,22 @@ public class ForDirectiveProcessor extends DirectiveProcessor<Scope> {
     @Override
     public void process(Scope scope, DirectiveNode node) {
         validateArguments(node, 1, 0);
+        validateOptionArguments(node, "parallel", 0, 1);
 
         List<String> variables = getArguments(scope, node, String.class);
         List<Node> inArguments = validateOptionArguments(node, "in", 1, 1);
         Node inNode = inArguments.get(0);
+        boolean parallel = Optional.ofNullable(getOptionArgument(scope, node, "parallel", Boolean.class, 0))
+            .orElse(false);
+
         Object in = scope.getRootScope().getEvaluator().visit(inNode, scope);
 
         if (in == null) {
             return;
         }
 
+        List<Map<String, Object>> iterations = new ArrayList<>();
+
         if (in instanceof List || in instanceof Set) {
             List<?> list = in instanceof List ? (List<?>) in : new ArrayList<>((Set<?>) in);
             int variablesSize = variables.size();
@@ -64,7 +78,7 @@ public class ForDirectiveProcessor extends DirectiveProcessor<Scope> {
                             : null);
                 }
 
-                processBody(node, scope, values);
+                iterations.add(values);
             }
 
         } else if (in instanceof Map) {
@@ -78,7 +92,7 @@ public class ForDirectiveProcessor extends DirectiveProcessor<Scope> {
 
                     values.put(keyVariable, entry.getKey());
                     values.put(valueVariable, entry.getValue());
-                    processBody(node, scope, values);
+                    iterations.add(values);
                 }
 
             } else {
@@ -86,7 +100,7 @@ public class ForDirectiveProcessor extends DirectiveProcessor<Scope> {
                     Map<String, Object> values = new LinkedHashMap<>();
 
                     values.put(keyVariable, entry.getKey());
-                    processBody(node, scope, values);
+                    iterations.add(values);
                 }
             }
 
@@ -96,12 +110,122 @@ public class ForDirectiveProcessor extends DirectiveProcessor<Scope> {
                 inNode,
                 in));
         }
+
+        if (parallel) {
+            processBodiesConcurrently(node, scope, iterations);
+
+        } else {
+            iterations.forEach(values -> processBody(node, scope, values));
+        }
     }
 
+    // The body scope only writes through to its parent, and the loop values never change, so it can be versioned.
     private void processBody(DirectiveNode node, Scope scope, Map<String, Object> values) {
         scope.getRootScope().getEvaluator().evaluateBody(
             node.getBody(),
-            new Scope(scope, new CascadingMap<>(scope, values)));
+            new Scope(scope, new LayeredMap<>(scope, values), true));
+    }
+
+    // Each iteration writes to its own layer, and the layers are merged in the iteration order afterwards so that the
+    // result doesn't depend on the timing of the evaluations.
+    private void processBodiesConcurrently(DirectiveNode node, Scope scope, List<Map<String, Object>> iterations) {
+        if (!(scope instanceof FileScope) || scope instanceof RootScope) {
+            throw new GyroException(node, "@|bold -parallel|@ option can only be used at the top level of a file!");
+        }
+
+        FileScope file = (FileScope) scope;
+        RootScope root = file.getRootScope();
+        List<Map<String, Object>> layers = new ArrayList<>();
+        List<FileScope> bodyScopes = new ArrayList<>();
+
+        for (Map<String, Object> values : iterations) {
+            Map<String, Object> layer = new LinkedHashMap<>();
+
+            layers.add(layer);
+            bodyScopes.add(new FileScope(root, file.getFile(), new LayeredMap<>(layer, file, values)));
+        }
+
+        root.getPendingFileScopes().addAll(bodyScopes);
+
+        try {
+            try {
+                root.getEvaluator().evaluateBodies(node.getBody(), bodyScopes);
+
+            } catch (RuntimeException | Error error) {
+                // Keeps the partial results like a serial loop would, without hiding the original error.
+                try {
+                    merge(file, layers, bodyScopes);
+
+                } catch (RuntimeException | Error mergeError) {
+                    error.addSuppressed(mergeError);
+                }
+
+                throw error;
+            }
+
+            merge(file, layers, bodyScopes);
+
+        } finally {
+            root.getPendingFileScopes().removeAll(bodyScopes);
+        }
+    }
+
+    private void merge(FileScope file, List<Map<String, Object>> layers, List<FileScope> bodyScopes) {
+        Map<String, Resource> resources = file.getRootScope().getResources();
+        Map<String, Node> resourceLocations = new HashMap<>();
+
+        for (int i = 0, size = bodyScopes.size(); i < size; i++) {
+            FileScope bodyScope = bodyScopes.get(i);
+
+            for (Map.Entry<String, Object> entry : layers.get(i).entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                Node location = bodyScope.getLocation(key);
+
+                if (value instanceof Resource) {
+                    checkDuplicate(file, resourceLocations, key, (Resource) value, location);
+
+                    // Registered again so that the order of the resources follows the iterations.
+                    resources.remove(key);
+                }
+
+                file.put(key, value);
+
+                if (location != null) {
+                    file.putLocation(key, location);
+                }
+            }
+        }
+    }
+
+    // Iterations can't see each other's resources, so the check in NodeEvaluator#visitResource is repeated here.
+    private void checkDuplicate(
+        FileScope file,
+        Map<String, Node> resourceLocations,
+        String key,
+        Resource resource,
+        Node location) {
+
+        Node previous;
+
+        if (resourceLocations.containsKey(key)) {
+            previous = resourceLocations.get(key);
+
+        } else if (file.containsKey(key) && !Objects.equals(file.getLocation(key), location)) {
+            previous = file.getLocation(key);
+
+        } else {
+            resourceLocations.put(key, location);
+            return;
+        }
+
+        throw new GyroException(
+            location,
+            String.format(
+                "@|bold %s %s|@ has been defined already!",
+                DiffableType.getInstance(resource).getName(),
+                DiffableInternals.getName(resource)),
+            new GyroException(previous, "Defined previously:"));
     }
 
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import gyro.core.GyroUI;
+
+/**
+ * Holds the output of a change that's executed concurrently with others so that it can be written to the
+ * underlying UI all at once instead of being interleaved.
+ */
+class BufferedUI implements GyroUI {
+
+    private final GyroUI ui;
+    private final List<Consumer<GyroUI>> writes = new ArrayList<>();
+
+    public BufferedUI(GyroUI ui) {
+        this.ui = ui;
+    }
+
+    /**
+     * Writes everything that's been buffered so far to the underlying UI.
+     */
+    public void flush() {
+        synchronized (ui) {
+            writes.forEach(w -> w.accept(ui));
+            writes.clear();
+        }
+    }
+
+    @Override
+    public boolean isVerbose() {
+        return ui.isVerbose();
+    }
+
+    @Override
+    public void setVerbose(boolean verbose) {
+        ui.setVerbose(verbose);
+    }
+
+    @Override
+    public boolean readBoolean(Boolean defaultValue, String message, Object... arguments) {
+        synchronized (ui) {
+            flush();
+            return ui.readBoolean(defaultValue, message, arguments);
+        }
+    }
+
+    @Override
+    public void readEnter(String message, Object... arguments) {
+        synchronized (ui) {
+            flush();
+            ui.readEnter(message, arguments);
+        }
+    }
+
+    @Override
+    public <E extends Enum<E>> E readNamedOption(E options) {
+        synchronized (ui) {
+            flush();
+            return ui.readNamedOption(options);
+        }
+    }
+
+    @Override
+    public String readPassword(String message, Object... arguments) {
+        synchronized (ui) {
+            flush();
+            return ui.readPassword(message, arguments);
+        }
+    }
+
+    @Override
+    public String readText(String message, Object... arguments) {
+        synchronized (ui) {
+            flush();
+            return ui.readText(message, arguments);
+        }
+    }
+
+    @Override
+    public void indent() {
+        writes.add(GyroUI::indent);
+    }
+
+    @Override
+    public void unindent() {
+        writes.add(GyroUI::unindent);
+    }
+
+    @Override
+    public void write(String message, Object... arguments) {
+        writes.add(u -> u.write(message, arguments));
+    }
+
+    @Override
+    public void replace(String message, Object... arguments) {
+        writes.add(u -> u.replace(message, arguments));
+    }
+
+    @Override
+    public boolean auditPending() {
+        return ui.auditPending();
+    }
+
+    @Override
+    public void setAuditPending(boolean auditPending) {
+        ui.setAuditPending(auditPending);
+    }
+
+    @Override
+    public void startAuditors(Map<String, Object> log) {
+        ui.startAuditors(log);
+    }
+
+    @Override
+    public void finishAuditors(Map<String, Object> log, boolean success) {
+        ui.finishAuditors(log, success);
+    }
+
+}
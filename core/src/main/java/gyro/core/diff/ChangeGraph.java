@@ -0,0 +1,353 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.diff;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import gyro.core.reference.ReferenceSettings;
+import gyro.core.resource.Diffable;
+import gyro.core.resource.DiffableField;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.Resource;
+import gyro.core.scope.Defer;
+import gyro.core.scope.DiffableScope;
+import gyro.lang.ast.Node;
+import gyro.lang.ast.NodeVisitor;
+import gyro.lang.ast.PairNode;
+import gyro.lang.ast.block.BlockNode;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.DirectiveSection;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.KeyBlockNode;
+import gyro.lang.ast.block.ResourceNode;
+import gyro.lang.ast.value.BinaryNode;
+import gyro.lang.ast.value.IndexedNode;
+import gyro.lang.ast.value.InterpolatedStringNode;
+import gyro.lang.ast.value.ListNode;
+import gyro.lang.ast.value.MapNode;
+import gyro.lang.ast.value.Option;
+import gyro.lang.ast.value.ReferenceNode;
+import gyro.lang.ast.value.ValueNode;
+
+/**
+ * Dependencies between the top-level changes of a {@link Diff}, each including the changes nested within it.
+ *
+ * <p>Two changes depend on each other when either one references a resource in the other, through a resource-typed
+ * field value or a {@code $(type name)} reference in its block. The dependencies are undirected, and the one that
+ * comes first in the list must be executed first, so the list order is always a valid execution order.</p>
+ */
+class ChangeGraph {
+
+    private final List<Set<Integer>> neighbors = new ArrayList<>();
+
+    public ChangeGraph(List<Change> changes) {
+        int size = changes.size();
+        Map<String, Integer> resources = new HashMap<>();
+        Map<String, Set<Integer>> types = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            int index = i;
+
+            neighbors.add(new LinkedHashSet<>());
+
+            forEachDiffable(changes.get(i), d -> {
+                if (d instanceof Resource) {
+                    resources.putIfAbsent(((Resource) d).primaryKey(), index);
+                    types.computeIfAbsent(DiffableType.getInstance(d).getName(), k -> new LinkedHashSet<>()).add(index);
+                }
+            });
+        }
+
+        for (int i = 0; i < size; i++) {
+            Set<Integer> references = new LinkedHashSet<>();
+
+            forEachDiffable(changes.get(i), d -> new Collector(d, size, resources, types, references).collect());
+
+            references.remove(i);
+
+            for (Integer r : references) {
+                neighbors.get(i).add(r);
+                neighbors.get(r).add(i);
+            }
+        }
+    }
+
+    /**
+     * Returns the changes that must be executed before the change at the given {@code index}. When {@code reverse} is
+     * {@code true}, for example for deletes, the changes are executed from the end of the list.
+     */
+    public List<Integer> getDependencies(int index, boolean reverse) {
+        List<Integer> dependencies = new ArrayList<>();
+
+        for (Integer n : neighbors.get(index)) {
+            if (reverse ? n > index : n < index) {
+                dependencies.add(n);
+            }
+        }
+
+        return dependencies;
+    }
+
+    private static void forEachDiffable(Change change, Consumer<Diffable> consumer) {
+        Diffable diffable = change.getDiffable();
+
+        if (diffable != null) {
+            consumer.accept(diffable);
+        }
+
+        for (Diff diff : change.getDiffs()) {
+            for (Change c : diff.getChanges()) {
+                forEachDiffable(c, consumer);
+            }
+        }
+    }
+
+    // Collects the indexes of the changes that a diffable references.
+    private static class Collector implements NodeVisitor<Void, Void, RuntimeException> {
+
+        private final Diffable diffable;
+        private final int size;
+        private final Map<String, Integer> resources;
+        private final Map<String, Set<Integer>> types;
+        private final Set<Integer> references;
+
+        public Collector(
+            Diffable diffable,
+            int size,
+            Map<String, Integer> resources,
+            Map<String, Set<Integer>> types,
+            Set<Integer> references) {
+
+            this.diffable = diffable;
+            this.size = size;
+            this.resources = resources;
+            this.types = types;
+            this.references = references;
+        }
+
+        public void collect() {
+            collectFields(diffable);
+
+            DiffableScope scope = DiffableInternals.getScope(diffable);
+            BlockNode block = scope != null ? scope.getBlock() : null;
+
+            if (block != null) {
+                visit(block.getBody(), null);
+            }
+        }
+
+        private void collectFields(Diffable d) {
+            for (DiffableField field : DiffableType.getInstance(d).getFields()) {
+                collectValue(field.getValue(d));
+            }
+        }
+
+        private void collectValue(Object value) {
+            if (value instanceof Resource) {
+                Integer index = resources.get(((Resource) value).primaryKey());
+
+                if (index != null) {
+                    references.add(index);
+                }
+
+            } else if (value instanceof Diffable) {
+                collectFields((Diffable) value);
+
+            } else if (value instanceof Collection) {
+                for (Object item : (Collection<?>) value) {
+                    collectValue(item);
+                }
+
+            } else if (value instanceof Map) {
+                for (Object item : ((Map<?, ?>) value).values()) {
+                    collectValue(item);
+                }
+            }
+        }
+
+        private void collectAll() {
+            for (int i = 0; i < size; i++) {
+                references.add(i);
+            }
+        }
+
+        private void visitOptions(List<Option> options) {
+            for (Option option : options) {
+                visit(option.getArguments(), null);
+            }
+        }
+
+        @Override
+        public Void visitDirective(DirectiveNode node, Void context) {
+            visit(node.getArguments(), null);
+            visitOptions(node.getOptions());
+            visit(node.getBody(), null);
+
+            for (DirectiveSection section : node.getSections()) {
+                visit(section.getArguments(), null);
+                visit(section.getBody(), null);
+            }
+
+            return null;
+        }
+
+        @Override
+        public Void visitPair(PairNode node, Void context) {
+            visit(node.getKey(), null);
+            visit(node.getValue(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitFile(FileNode node, Void context) {
+            visit(node.getBody(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitKeyBlock(KeyBlockNode node, Void context) {
+            if (node.getName() != null) {
+                visit(node.getName(), null);
+            }
+
+            visit(node.getBody(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitResource(ResourceNode node, Void context) {
+            visit(node.getName(), null);
+            visit(node.getBody(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(BinaryNode node, Void context) {
+            visit(node.getLeft(), null);
+            visit(node.getRight(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitIndexed(IndexedNode node, Void context) {
+            visit(node.getValue(), null);
+            visit(node.getIndexes(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitInterpolatedString(InterpolatedStringNode node, Void context) {
+            visit(node.getItems(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitList(ListNode node, Void context) {
+            visit(node.getItems(), null);
+            return null;
+        }
+
+        @Override
+        public Void visitMap(MapNode node, Void context) {
+            for (PairNode entry : node.getEntries()) {
+                visit(entry, null);
+            }
+
+            return null;
+        }
+
+        @Override
+        public Void visitReference(ReferenceNode node, Void context) {
+            List<Node> arguments = node.getArguments();
+
+            visit(arguments, null);
+            visitOptions(node.getOptions());
+
+            if (arguments.isEmpty()) {
+                return null;
+            }
+
+            String first = getString(arguments.get(0));
+
+            // References that can't be analyzed statically may read any resource.
+            if (first == null) {
+                collectAll();
+
+            } else if (first.contains("::")) {
+                Set<Integer> typeIndexes = types.getOrDefault(first, Collections.emptySet());
+
+                if (arguments.size() == 1) {
+                    references.addAll(typeIndexes);
+                }
+
+                for (Node argument : arguments.subList(1, arguments.size())) {
+                    String name = getString(argument);
+                    Integer index = name != null && !name.endsWith("*") ? resources.get(first + "::" + name) : null;
+
+                    if (index != null) {
+                        references.add(index);
+
+                    } else {
+                        references.addAll(typeIndexes);
+                    }
+                }
+
+            } else {
+                DiffableScope scope = DiffableInternals.getScope(diffable);
+
+                if (scope.getRootScope().getSettings(ReferenceSettings.class).getResolver(first) == null) {
+                    try {
+                        collectValue(scope.find(node, first));
+
+                    } catch (Defer error) {
+                        // Variables that aren't defined don't reference any resources.
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public Void visitValue(ValueNode node, Void context) {
+            return null;
+        }
+
+        private static String getString(Node node) {
+            if (node instanceof ValueNode) {
+                Object value = ((ValueNode) node).getValue();
+
+                if (value instanceof String) {
+                    return (String) value;
+                }
+            }
+
+            return null;
+        }
+
+    }
+
+}
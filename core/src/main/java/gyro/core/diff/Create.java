@@ -43,8 +43,8 @@ public class Create extends Change {
     private void writeFields(GyroUI ui) {
         Set<String> configuredFields = DiffableInternals.getConfiguredFields(diffable);
 
-        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getFields()) {
-            if (!field.shouldBeDiffed() && configuredFields.contains(field.getName())) {
+        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getPlainFields()) {
+            if (configuredFields.contains(field.getName())) {
                 ui.write("\n· %s: %s", field.getName(), stringify(field.getValue(diffable)));
             }
         }
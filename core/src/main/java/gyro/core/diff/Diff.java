@@ -27,11 +27,17 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import gyro.core.GyroCore;
 import gyro.core.GyroException;
 import gyro.core.GyroUI;
+import gyro.core.ParallelTasks;
 import gyro.core.resource.Diffable;
 import gyro.core.resource.DiffableField;
 import gyro.core.resource.DiffableInternals;
@@ -50,6 +56,8 @@ public class Diff {
     private final List<Diffable> currentDiffables;
     private final List<Diffable> pendingDiffables;
     private final List<Change> changes = new ArrayList<>();
+    private boolean parallel;
+    private int parallelism = 1;
 
     // Workflow related
     private final AtomicBoolean honorWorkflowResources = new AtomicBoolean();
@@ -97,6 +105,36 @@ public class Diff {
         return changes;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Computes the changes for the diffables at this level concurrently in {@link #diff()}.
+     *
+     * <p>Pending resources are still reevaluated one at a time in their original order, so that references between
+     * them read the same values as in a serial diff, and the changes are kept in the same order.</p>
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Executes up to the given number of independent changes at this level at once in
+     * {@link #execute(GyroUI, State)}. Values less than {@code 2} execute the changes one at a time.
+     *
+     * <p>Changes that reference each other's resources are still executed in their original order, or in the reverse
+     * order for deletes, and no new changes are started after one fails. Only the changes that finished are saved to
+     * the state, in the order of the changes.</p>
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     public void diff() {
         Stream<Diffable> currentDiffableStream = this.currentDiffables.stream();
 
@@ -111,6 +149,14 @@ public class Diff {
             Map::putAll
         );
 
+        // Changes are computed concurrently in parallel, but the pending resources are still reevaluated in order.
+        // Computing them reevaluates the nested resources and the state nodes of the deleted ones, so the evaluators
+        // need to know that it happens concurrently.
+        List<Supplier<Change>> newChanges = new ArrayList<>();
+        Consumer<Supplier<Change>> changeConsumer = parallel
+            ? newChange -> newChanges.add(NodeEvaluator.concurrently(newChange))
+            : newChange -> changes.add(newChange.get());
+
         for (Diffable pendingDiffable : pendingDiffables) {
             if (!honorWorkflowResources.get()
                 && pendingDiffable instanceof Resource
@@ -129,13 +175,17 @@ public class Diff {
 
             Diffable currentDiffable = currentDiffables.remove(pendingDiffableKey);
 
-            changes.add(currentDiffable == null
-                ? newCreate(pendingDiffable)
-                : newUpdate(currentDiffable, pendingDiffable));
+            changeConsumer.accept(currentDiffable == null
+                ? () -> newCreate(pendingDiffable)
+                : () -> newUpdate(currentDiffable, pendingDiffable));
         }
 
         for (Diffable resource : currentDiffables.values()) {
-            changes.add(newDelete(resource));
+            changeConsumer.accept(() -> newDelete(resource));
+        }
+
+        if (parallel) {
+            changes.addAll(ParallelTasks.supplyAll(newChanges));
         }
     }
 
@@ -145,11 +195,7 @@ public class Diff {
 
         DiffableInternals.setChange(diffable, create);
 
-        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getFields()) {
-            if (!field.shouldBeDiffed()) {
-                continue;
-            }
-
+        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getDiffableFields()) {
             Object value = field.getValue(diffable);
             Diff diff;
 
@@ -179,11 +225,7 @@ public class Diff {
         Set<String> currentConfiguredFields = DiffableInternals.getConfiguredFields(currentDiffable);
         Set<String> pendingConfiguredFields = DiffableInternals.getConfiguredFields(pendingDiffable);
 
-        for (DiffableField field : type.getFields()) {
-            if (!field.shouldBeDiffed()) {
-                continue;
-            }
-
+        for (DiffableField field : type.getDiffableFields()) {
             String name = field.getName();
 
             if (!currentConfiguredFields.contains(name) && !pendingConfiguredFields.contains(name)) {
@@ -254,12 +296,8 @@ public class Diff {
         Set<String> pendingConfiguredFields = DiffableInternals.getConfiguredFields(pendingDiffable);
         Set<DiffableField> changedFields = new LinkedHashSet<>();
 
-        for (DiffableField field : DiffableType.getInstance(currentDiffable.getClass()).getFields()) {
-
-            // Skip nested diffables since they're handled by the diff system.
-            if (field.shouldBeDiffed()) {
-                continue;
-            }
+        // Nested diffables are skipped since they're handled by the diff system.
+        for (DiffableField field : DiffableType.getInstance(currentDiffable.getClass()).getPlainFields()) {
 
             // Skip the field whose value can be modified by a cloud provider.
             if (field.isImmutable()) {
@@ -297,11 +335,7 @@ public class Diff {
 
         DiffableInternals.setChange(diffable, delete);
 
-        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getFields()) {
-            if (!field.shouldBeDiffed()) {
-                continue;
-            }
-
+        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getDiffableFields()) {
             Object value = field.getValue(diffable);
             Diff diff;
 
@@ -405,21 +439,99 @@ public class Diff {
     }
 
     public void execute(GyroUI ui, State state) {
-        executeCreateKeepUpdate(ui, state);
-        executeReplace(ui, state);
-        executeReplaceActions(ui, state);
-        executeDelete(ui, state);
+        if (parallelism > 1) {
+            ChangeGraph graph = new ChangeGraph(getChanges());
+
+            executeConcurrently(ui, state, graph, false);
+            executeReplace(ui, state);
+            executeReplaceActions(ui, state);
+            executeConcurrently(ui, state, graph, true);
+
+        } else {
+            executeCreateKeepUpdate(ui, state);
+            executeReplace(ui, state);
+            executeReplaceActions(ui, state);
+            executeDelete(ui, state);
+        }
+    }
+
+    private void executeConcurrently(GyroUI ui, State state, ChangeGraph graph, boolean delete) {
+        List<Change> changes = getChanges();
+        int size = changes.size();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(Collections.nCopies(size, null));
+        AtomicBoolean failed = new AtomicBoolean();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            for (int k = 0; k < size; k++) {
+                int i = delete ? size - 1 - k : k;
+                Change change = changes.get(i);
+
+                // Changes whose dependencies failed complete with the same error without running.
+                futures.set(i, CompletableFuture.allOf(graph.getDependencies(i, delete)
+                    .stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture<?>[]::new))
+                    .thenRunAsync(
+                        () -> {
+                            // Stop starting new changes after a failure, but let the running ones finish so that
+                            // their results are saved to the state.
+                            if (failed.get()) {
+                                return;
+                            }
+
+                            BufferedUI bufferedUi = new BufferedUI(ui);
+
+                            GyroCore.pushUi(bufferedUi);
+
+                            try {
+                                // Only the finished changes are saved to the state, in the order of the changes.
+                                // They're also reevaluated at the same time, so the evaluators need to know.
+                                NodeEvaluator.concurrently(() -> {
+                                    state.deferUpdates(i, () -> {
+                                        if (delete) {
+                                            executeDelete(bufferedUi, state, change);
+
+                                        } else {
+                                            executeCreateKeepUpdate(bufferedUi, state, change);
+                                        }
+                                    });
+
+                                    return null;
+                                }).get();
+
+                            } catch (RuntimeException | Error error) {
+                                failed.set(true);
+                                throw error;
+
+                            } finally {
+                                GyroCore.popUi();
+                                bufferedUi.flush();
+                            }
+                        }, pool));
+            }
+
+            ParallelTasks.awaitAll(futures);
+            futures.forEach(ParallelTasks::join);
+
+        } finally {
+            pool.shutdown();
+        }
     }
 
     private void executeCreateKeepUpdate(GyroUI ui, State state) {
         for (Change change : getChanges()) {
-            if (change instanceof Create || change instanceof Keep || change instanceof Update) {
-                executeChange(ui, state, change);
-            }
+            executeCreateKeepUpdate(ui, state, change);
+        }
+    }
 
-            for (Diff d : change.getDiffs()) {
-                d.executeCreateKeepUpdate(ui, state);
-            }
+    private void executeCreateKeepUpdate(GyroUI ui, State state, Change change) {
+        if (change instanceof Create || change instanceof Keep || change instanceof Update) {
+            executeChange(ui, state, change);
+        }
+
+        for (Diff d : change.getDiffs()) {
+            d.executeCreateKeepUpdate(ui, state);
         }
     }
 
@@ -446,15 +558,17 @@ public class Diff {
 
     private void executeDelete(GyroUI ui, State state) {
         for (ListIterator<Change> j = getChanges().listIterator(getChanges().size()); j.hasPrevious(); ) {
-            Change change = j.previous();
+            executeDelete(ui, state, j.previous());
+        }
+    }
 
-            for (Diff d : change.getDiffs()) {
-                d.executeDelete(ui, state);
-            }
+    private void executeDelete(GyroUI ui, State state, Change change) {
+        for (Diff d : change.getDiffs()) {
+            d.executeDelete(ui, state);
+        }
 
-            if (change instanceof Delete) {
-                executeChange(ui, state, change);
-            }
+        if (change instanceof Delete) {
+            executeChange(ui, state, change);
         }
     }
 
@@ -492,7 +606,9 @@ public class Diff {
                     error);
             }
 
-            state.save();
+            // Executing the change can fill in the output fields that the others read.
+            DiffableInternals.incrementVersion(diffable);
+            state.commit();
 
             if (result != null) {
                 result.write(ui);
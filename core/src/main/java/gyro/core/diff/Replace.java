@@ -69,11 +69,9 @@ public class Replace extends Change {
             return;
         }
 
-        for (DiffableField field : DiffableType.getInstance(pendingDiffable.getClass()).getFields()) {
-            if (!field.shouldBeDiffed()) {
-                if (changedFields.contains(field)) {
-                    writeDifference(ui, field, currentDiffable, pendingDiffable);
-                }
+        for (DiffableField field : DiffableType.getInstance(pendingDiffable.getClass()).getPlainFields()) {
+            if (changedFields.contains(field)) {
+                writeDifference(ui, field, currentDiffable, pendingDiffable);
             }
         }
     }
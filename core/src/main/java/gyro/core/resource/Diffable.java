@@ -24,6 +24,8 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import gyro.core.GyroInputStream;
 import gyro.core.GyroUI;
 import gyro.core.diff.Change;
@@ -34,6 +36,8 @@ import gyro.core.workflow.ModifiedIn;
 
 public abstract class Diffable {
 
+    private static final Interner<String> PRIMARY_KEYS = Interners.newWeakInterner();
+
     boolean external;
     Diffable parent;
     String name;
@@ -41,7 +45,9 @@ public abstract class Diffable {
     Change change;
     Set<String> configuredFields;
     ModifiedIn modifiedIn;
+    volatile int version;
     final List<Modification<? extends Diffable>> modifications = new ArrayList<>();
+    volatile IdentityKey identityKey;
 
     public abstract String primaryKey();
 
@@ -102,7 +108,16 @@ public abstract class Diffable {
 
     @Override
     public final int hashCode() {
-        return Objects.hash(parent(), name, primaryKey());
+        IdentityKey key = getIdentityKey();
+
+        if (key.primaryKey != null && parent() == null) {
+            return key.hash;
+
+        } else {
+            // Same as Objects.hash(parent(), name, primaryKey()) without the array.
+            return 31 * (31 * (31 + Objects.hashCode(parent())) + Objects.hashCode(name))
+                + Objects.hashCode(primaryKey());
+        }
     }
 
     @Override
@@ -121,6 +136,18 @@ public abstract class Diffable {
             DiffableField idField = DiffableType.getInstance(getClass()).getIdField();
             return Objects.equals(idField.getValue(this), idField.getValue(otherDiffable));
 
+        }
+
+        IdentityKey key = getIdentityKey();
+
+        if (key.primaryKey != null && parent() == null && otherDiffable.parent() == null) {
+            IdentityKey otherKey = otherDiffable.getIdentityKey();
+
+            // Primary keys are interned.
+            return key.hash == otherKey.hash
+                && key.primaryKey == otherKey.primaryKey
+                && Objects.equals(name, otherDiffable.name);
+
         } else {
             return Objects.equals(parent(), otherDiffable.parent())
                 && Objects.equals(name, otherDiffable.name)
@@ -128,6 +155,26 @@ public abstract class Diffable {
         }
     }
 
+    /**
+     * Returns the identity of this diffable for its current name. Its primary key is only set when it's derived from
+     * the name alone, as in {@link Resource#primaryKey()}.
+     */
+    IdentityKey getIdentityKey() {
+        IdentityKey key = identityKey;
+
+        if (key == null || key.name != name) {
+            DiffableType<Diffable> type = DiffableType.getInstance(this);
+
+            key = new IdentityKey(
+                name,
+                type.isNameKeyed() ? PRIMARY_KEYS.intern(type.getName() + "::" + name) : null);
+
+            identityKey = key;
+        }
+
+        return key;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -162,4 +209,17 @@ public abstract class Diffable {
     public List<ValidationError> validate() {
         return null;
     }
+
+    static final class IdentityKey {
+
+        public final String name;
+        public final String primaryKey;
+        public final int hash;
+
+        public IdentityKey(String name, String primaryKey) {
+            this.name = name;
+            this.primaryKey = primaryKey;
+            this.hash = 31 * (31 * 31 + Objects.hashCode(name)) + Objects.hashCode(primaryKey);
+        }
+    }
 }
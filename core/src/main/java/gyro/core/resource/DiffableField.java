@@ -28,11 +28,14 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 import com.google.common.base.CaseFormat;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.psddev.dari.util.ConversionException;
 import gyro.core.GyroException;
 import gyro.core.Reflections;
@@ -41,6 +44,7 @@ import gyro.core.validation.Required;
 import gyro.core.validation.ValidationError;
 import gyro.core.validation.Validator;
 import gyro.core.validation.ValidatorClass;
+import gyro.util.Bug;
 
 public class DiffableField {
 
@@ -57,8 +61,13 @@ public class DiffableField {
         });
 
     private final String name;
-    private final Method getter;
-    private final Method setter;
+    private final Class<?> getterClass;
+    private final String getterName;
+    private volatile Method getter;
+    private final Function<Object, Object> getterFunction;
+    private final BiConsumer<Object, Object> setterFunction;
+    private volatile Type setterType;
+    private final Class<?> setterClass;
     private final boolean updatable;
     private final boolean calculated;
     private final boolean immutable;
@@ -66,11 +75,19 @@ public class DiffableField {
     private final boolean required;
     private final boolean collection;
     private final Class<?> itemClass;
+    private final boolean diffed;
+    private volatile List<AnnotatedValidator> validators;
+    private volatile ConversionDecision lastConversion;
 
     protected DiffableField(String javaName, Method getter, Method setter, Type type) {
         this.name = CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_HYPHEN, javaName);
+        this.getterClass = getter.getDeclaringClass();
+        this.getterName = getter.getName();
         this.getter = getter;
-        this.setter = setter;
+        this.getterFunction = Reflections.getter(getter);
+        this.setterFunction = setter != null ? Reflections.setter(setter) : null;
+        this.setterType = setter != null ? setter.getGenericParameterTypes()[0] : null;
+        this.setterClass = setter != null ? setter.getParameterTypes()[0] : null;
         this.updatable = isAnnotationPresent(getter, Updatable.class);
         this.calculated = isAnnotationPresent(getter, Calculated.class);
         this.immutable = isAnnotationPresent(getter, Immutable.class);
@@ -97,12 +114,41 @@ public class DiffableField {
                 "@|bold %s|@ isn't supported as a field type!",
                 type.getTypeName()));
         }
+
+        this.diffed = isDiffed(itemClass);
+    }
+
+    /**
+     * Creates a field from the metadata generated at compile time. The getter method and the generic setter type are
+     * only looked up when they're needed.
+     */
+    protected DiffableField(Class<?> diffableClass, DiffableFieldMetadata metadata) {
+        this.name = CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_HYPHEN, metadata.getJavaName());
+        this.getterClass = diffableClass;
+        this.getterName = metadata.getGetterName();
+        this.getterFunction = metadata.getGetter();
+        this.setterFunction = metadata.getSetter();
+        this.setterClass = metadata.getType();
+        this.updatable = metadata.is(DiffableFieldMetadata.UPDATABLE);
+        this.calculated = metadata.is(DiffableFieldMetadata.CALCULATED);
+        this.immutable = metadata.is(DiffableFieldMetadata.IMMUTABLE);
+        this.output = metadata.is(DiffableFieldMetadata.OUTPUT);
+        this.required = metadata.is(DiffableFieldMetadata.REQUIRED);
+        this.collection = metadata.isCollection();
+        this.itemClass = metadata.getItemClass();
+        this.diffed = isDiffed(itemClass);
     }
 
     protected DiffableField(DiffableField field) {
         name = field.name;
+        getterClass = field.getterClass;
+        getterName = field.getterName;
         getter = field.getter;
-        setter = field.setter;
+        validators = field.validators;
+        getterFunction = field.getterFunction;
+        setterFunction = field.setterFunction;
+        setterType = field.setterType;
+        setterClass = field.setterClass;
         updatable = field.updatable;
         calculated = field.calculated;
         immutable = field.immutable;
@@ -110,6 +156,7 @@ public class DiffableField {
         required = field.required;
         collection = field.collection;
         itemClass = field.itemClass;
+        diffed = field.diffed;
     }
 
     public String getName() {
@@ -144,31 +191,32 @@ public class DiffableField {
         return itemClass;
     }
 
-    @SuppressWarnings("unchecked")
     public boolean shouldBeDiffed() {
-        return Diffable.class.isAssignableFrom(itemClass)
-            && !DiffableType.getInstance((Class<? extends Diffable>) itemClass).isRoot();
+        return diffed;
     }
 
     public Object getValue(Diffable diffable) {
-        return Reflections.invoke(getter, diffable);
+        return getterFunction.apply(diffable);
     }
 
     public void setValue(Diffable diffable, Object value) {
         Scope scope = diffable.scope;
-        Type type = setter.getGenericParameterTypes()[0];
+        Type type = getSetterType();
 
         try {
-            if (value instanceof Collection
-                && !Collection.class.isAssignableFrom(setter.getParameterTypes()[0])) {
-
+            if (value instanceof Collection && !Collection.class.isAssignableFrom(setterClass)) {
                 value = ((Collection<?>) value).stream()
                     .filter(Objects::nonNull)
                     .findFirst()
                     .orElse(null);
             }
 
-            Reflections.invoke(setter, diffable, scope.getRootScope().convertValue(type, value));
+            if (value != null && !needsConversion(type, value.getClass())) {
+                setterFunction.accept(diffable, value);
+
+            } else {
+                setterFunction.accept(diffable, scope.getRootScope().convertValue(type, value));
+            }
 
         } catch (ConversionException error) {
             throw new GyroException(
@@ -182,11 +230,11 @@ public class DiffableField {
     }
 
     public void testUpdate(Diffable diffable) {
-        if (!isAnnotationPresent(getter, Output.class)) {
+        if (!output) {
             return;
         }
 
-        Optional<Object> testValue = Optional.ofNullable(getAnnotation(getter, TestValue.class)).map(TestValue::value);
+        Optional<Object> testValue = Optional.ofNullable(getAnnotation(getGetter(), TestValue.class)).map(TestValue::value);
 
         if (Date.class.isAssignableFrom(itemClass)) {
             setValue(diffable, testValue.orElseGet(Date::new));
@@ -204,24 +252,100 @@ public class DiffableField {
     }
 
     public List<ValidationError> validate(Diffable diffable) {
-        Object value = getValue(diffable);
         List<ValidationError> errors = new ArrayList<>();
+        List<AnnotatedValidator> validators = getValidators();
 
-        for (Annotation annotation : getAnnotations(getter)) {
-            ValidatorClass validatorClass = annotation.annotationType().getAnnotation(ValidatorClass.class);
+        if (validators.isEmpty()) {
+            return errors;
+        }
 
-            if (validatorClass != null) {
-                Validator<Annotation> validator = VALIDATORS.getUnchecked(validatorClass.value());
+        Object value = getValue(diffable);
 
-                if (!validator.isValid(diffable, annotation, value)) {
-                    errors.add(new ValidationError(diffable, name, validator.getMessage(annotation)));
-                }
+        for (AnnotatedValidator v : validators) {
+            if (!v.validator.isValid(diffable, v.annotation, value)) {
+                errors.add(new ValidationError(diffable, name, v.validator.getMessage(v.annotation)));
             }
         }
 
         return errors;
     }
 
+    boolean hasValidators() {
+        return !getValidators().isEmpty();
+    }
+
+    // Finding the annotations walks up the super methods, so only do it once.
+    private List<AnnotatedValidator> getValidators() {
+        List<AnnotatedValidator> v = validators;
+
+        if (v == null) {
+            ImmutableList.Builder<AnnotatedValidator> builder = ImmutableList.builder();
+
+            for (Annotation annotation : getAnnotations(getGetter())) {
+                ValidatorClass validatorClass = annotation.annotationType().getAnnotation(ValidatorClass.class);
+
+                if (validatorClass != null) {
+                    builder.add(new AnnotatedValidator(annotation, VALIDATORS.getUnchecked(validatorClass.value())));
+                }
+            }
+
+            v = builder.build();
+            validators = v;
+        }
+
+        return v;
+    }
+
+    private Method getGetter() {
+        Method g = getter;
+
+        if (g == null) {
+            try {
+                g = getterClass.getMethod(getterName);
+                getter = g;
+
+            } catch (NoSuchMethodException error) {
+                throw new Bug(error);
+            }
+        }
+
+        return g;
+    }
+
+    // Values that are already of the non-generic setter type don't need to go through the converter, unless it's
+    // Object, which the converter turns resources and iterables into. Fields are usually set to values of the same
+    // class over and over, so the last decision is kept.
+    private boolean needsConversion(Type type, Class<?> valueClass) {
+        ConversionDecision decision = lastConversion;
+
+        if (decision == null || decision.valueClass != valueClass) {
+            decision = new ConversionDecision(
+                valueClass,
+                !(type instanceof Class) || setterClass == Object.class || !setterClass.isAssignableFrom(valueClass));
+
+            lastConversion = decision;
+        }
+
+        return decision.needed;
+    }
+
+    private Type getSetterType() {
+        Type t = setterType;
+
+        if (t == null) {
+            // The getter and setter types are the same for all fields.
+            t = getGetter().getGenericReturnType();
+            setterType = t;
+        }
+
+        return t;
+    }
+
+    // Same as checking DiffableType#isRoot, without loading the item type while this one is still being built.
+    private static boolean isDiffed(Class<?> itemClass) {
+        return Diffable.class.isAssignableFrom(itemClass) && !Reflections.getTypeOptional(itemClass).isPresent();
+    }
+
     protected static boolean isAnnotationPresent(Method method, Class<? extends Annotation> annotationClass) {
         if (!method.isAnnotationPresent(annotationClass)) {
             Method superMethod = getSuperMethod(method);
@@ -273,4 +397,26 @@ public class DiffableField {
             return null;
         }
     }
+
+    private static class AnnotatedValidator {
+
+        public final Annotation annotation;
+        public final Validator<Annotation> validator;
+
+        public AnnotatedValidator(Annotation annotation, Validator<Annotation> validator) {
+            this.annotation = annotation;
+            this.validator = validator;
+        }
+    }
+
+    private static class ConversionDecision {
+
+        public final Class<?> valueClass;
+        public final boolean needed;
+
+        public ConversionDecision(Class<?> valueClass, boolean needed) {
+            this.valueClass = valueClass;
+            this.needed = needed;
+        }
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.resource;
+
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Describes a field of a diffable type in {@link DiffableTypeMetadata}.
+ */
+public final class DiffableFieldMetadata {
+
+    public static final int ID = 1;
+    public static final int UPDATABLE = 1 << 1;
+    public static final int CALCULATED = 1 << 2;
+    public static final int IMMUTABLE = 1 << 3;
+    public static final int OUTPUT = 1 << 4;
+    public static final int REQUIRED = 1 << 5;
+
+    private final String javaName;
+    private final String getterName;
+    private final Class<?> type;
+    private final boolean collection;
+    private final Class<?> itemClass;
+    private final int flags;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    /**
+     * @param javaName Name of the bean property. Can't be {@code null}.
+     * @param getterName Name of the public getter method. Can't be {@code null}.
+     * @param type Raw type of the property. Can't be {@code null}.
+     * @param collection {@code true} if the type is a parameterized collection.
+     * @param itemClass Type of the property, or its first type argument if the type is parameterized.
+     *        Can't be {@code null}.
+     * @param flags Combination of {@link #ID}, {@link #UPDATABLE}, {@link #CALCULATED}, {@link #IMMUTABLE},
+     *        {@link #OUTPUT} and {@link #REQUIRED}.
+     * @param getter Calls the getter on the diffable. Can't be {@code null}.
+     * @param setter Calls the setter on the diffable with the value. Can't be {@code null}.
+     */
+    public DiffableFieldMetadata(
+        String javaName,
+        String getterName,
+        Class<?> type,
+        boolean collection,
+        Class<?> itemClass,
+        int flags,
+        Function<Object, Object> getter,
+        BiConsumer<Object, Object> setter) {
+
+        this.javaName = Preconditions.checkNotNull(javaName);
+        this.getterName = Preconditions.checkNotNull(getterName);
+        this.type = Preconditions.checkNotNull(type);
+        this.collection = collection;
+        this.itemClass = Preconditions.checkNotNull(itemClass);
+        this.flags = flags;
+        this.getter = Preconditions.checkNotNull(getter);
+        this.setter = Preconditions.checkNotNull(setter);
+    }
+
+    public String getJavaName() {
+        return javaName;
+    }
+
+    public String getGetterName() {
+        return getterName;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public boolean isCollection() {
+        return collection;
+    }
+
+    public Class<?> getItemClass() {
+        return itemClass;
+    }
+
+    public boolean is(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    public Function<Object, Object> getGetter() {
+        return getter;
+    }
+
+    public BiConsumer<Object, Object> getSetter() {
+        return setter;
+    }
+
+}
@@ -22,6 +22,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import gyro.core.diff.Change;
@@ -34,6 +36,12 @@ import gyro.lang.ast.block.BlockNode;
 
 public final class DiffableInternals {
 
+    private static final AtomicIntegerFieldUpdater<Diffable> VERSION = AtomicIntegerFieldUpdater.newUpdater(
+        Diffable.class,
+        "version");
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private DiffableInternals() {
     }
 
@@ -47,6 +55,7 @@ public final class DiffableInternals {
 
     public static void setName(Diffable diffable, String name) {
         diffable.name = name;
+        diffable.identityKey = null;
     }
 
     public static DiffableScope getScope(Diffable diffable) {
@@ -69,6 +78,28 @@ public final class DiffableInternals {
         diffable.modifiedIn = modifiedIn;
     }
 
+    /**
+     * Returns the number of times that the given {@code diffable} may have changed after it was first evaluated,
+     * which is used to decide whether the values that read from it need to be reevaluated.
+     */
+    public static int getVersion(Diffable diffable) {
+        return diffable.version;
+    }
+
+    public static void incrementVersion(Diffable diffable) {
+        // Versions are incremented from multiple threads during parallel evaluation, diff and execute.
+        VERSION.incrementAndGet(diffable);
+        VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Returns a number that changes whenever the version of any diffable does, so that the diffables only need to be
+     * checked for changes when it's different.
+     */
+    public static long getVersions() {
+        return VERSIONS.get();
+    }
+
     @SuppressWarnings("unchecked")
     public static <T extends Diffable> List<Modification<T>> getModifications(T diffable) {
         return (List) diffable.modifications;
@@ -93,7 +124,7 @@ public final class DiffableInternals {
                 diffable.scope = newScope;
 
                 NodeEvaluator evaluator = newScope.getRootScope().getEvaluator();
-                evaluator.evaluateDiffable(block, newScope);
+                boolean changed = evaluator.evaluateDiffable(block, newScope);
                 DiffableType.getInstance(diffable).setValues(diffable, newScope);
 
                 RootScope root = oldScope.getRootScope();
@@ -103,6 +134,10 @@ public final class DiffableInternals {
                     .ifPresent(r -> evaluator.copy(r, diffable));
 
                 newScope.process(diffable);
+
+                if (changed) {
+                    incrementVersion(diffable);
+                }
             }
         }
     }
@@ -137,19 +172,17 @@ public final class DiffableInternals {
     }
 
     private static void disconnectChildren(Diffable diffable) {
-        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getFields()) {
-            if (field.shouldBeDiffed()) {
-                Object value = field.getValue(diffable);
-
-                (value instanceof Collection ? ((Collection<?>) value).stream() : Stream.of(value))
-                    .filter(Diffable.class::isInstance)
-                    .map(Diffable.class::cast)
-                    .forEach(d -> {
-                        d.scope = new DiffableScope(diffable.scope, null);
-
-                        disconnectChildren(d);
-                    });
-            }
+        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getDiffableFields()) {
+            Object value = field.getValue(diffable);
+
+            (value instanceof Collection ? ((Collection<?>) value).stream() : Stream.of(value))
+                .filter(Diffable.class::isInstance)
+                .map(Diffable.class::cast)
+                .forEach(d -> {
+                    d.scope = new DiffableScope(diffable.scope, null);
+
+                    disconnectChildren(d);
+                });
         }
     }
 
@@ -163,21 +196,20 @@ public final class DiffableInternals {
     }
 
     private static void updateChildren(Diffable diffable) {
-        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getFields()) {
-            if (field.shouldBeDiffed()) {
-                String fieldName = field.getName();
-                Object value = field.getValue(diffable);
-
-                (value instanceof Collection ? ((Collection<?>) value).stream() : Stream.of(value))
-                    .filter(Diffable.class::isInstance)
-                    .map(Diffable.class::cast)
-                    .forEach(d -> {
-                        d.parent = diffable;
-                        d.name = fieldName;
-
-                        updateChildren(d);
-                    });
-            }
+        for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getDiffableFields()) {
+            String fieldName = field.getName();
+            Object value = field.getValue(diffable);
+
+            (value instanceof Collection ? ((Collection<?>) value).stream() : Stream.of(value))
+                .filter(Diffable.class::isInstance)
+                .map(Diffable.class::cast)
+                .forEach(d -> {
+                    d.parent = diffable;
+                    d.name = fieldName;
+                    d.identityKey = null;
+
+                    updateChildren(d);
+                });
         }
     }
 }
@@ -19,9 +19,11 @@ package gyro.core.resource;
 import java.beans.PropertyDescriptor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import gyro.core.GyroException;
 import gyro.core.Reflections;
 import gyro.core.auth.CredentialsSettings;
@@ -43,6 +46,7 @@ import gyro.core.validation.ValidationError;
 import gyro.core.workflow.ModifiedIn;
 import gyro.lang.ast.Node;
 import gyro.parser.antlr4.GyroParser;
+import gyro.util.Bug;
 
 public class DiffableType<D extends Diffable> {
 
@@ -61,9 +65,11 @@ public class DiffableType<D extends Diffable> {
     private final String name;
     private final Node description;
     private final DiffableField idField;
+    private final boolean nameKeyed;
     private final List<DiffableField> fields;
     private final Set<Class<? extends Modification<D>>> modificationClasses = new HashSet<>();
     private final List<ModificationField> modificationFields = new ArrayList<>();
+    private volatile FieldTable fieldTable;
 
     @SuppressWarnings("unchecked")
     public static <T extends Diffable> DiffableType<T> getInstance(Class<T> diffableClass) {
@@ -96,28 +102,77 @@ public class DiffableType<D extends Diffable> {
 
         DiffableField idField = null;
         ImmutableList.Builder<DiffableField> fields = ImmutableList.builder();
+        DiffableTypeMetadata metadata = findMetadata(diffableClass);
 
-        for (PropertyDescriptor prop : Reflections.getBeanInfo(diffableClass).getPropertyDescriptors()) {
-            Method getter = prop.getReadMethod();
-            Method setter = prop.getWriteMethod();
+        if (metadata != null) {
+            for (DiffableFieldMetadata fieldMetadata : metadata.getFields()) {
+                DiffableField field = new DiffableField(diffableClass, fieldMetadata);
 
-            if (getter != null && setter != null) {
-                java.lang.reflect.Type getterType = getter.getGenericReturnType();
-                java.lang.reflect.Type setterType = setter.getGenericParameterTypes()[0];
+                if (fieldMetadata.is(DiffableFieldMetadata.ID)) {
+                    idField = field;
+                }
 
-                if (getterType.equals(setterType)) {
-                    DiffableField field = new DiffableField(prop.getName(), getter, setter, getterType);
-                    if (DiffableField.isAnnotationPresent(getter, Id.class)) {
-                        idField = field;
-                    }
+                fields.add(field);
+            }
+
+        } else {
+            for (PropertyDescriptor prop : Reflections.getBeanInfo(diffableClass).getPropertyDescriptors()) {
+                Method getter = prop.getReadMethod();
+                Method setter = prop.getWriteMethod();
+
+                if (getter != null && setter != null) {
+                    java.lang.reflect.Type getterType = getter.getGenericReturnType();
+                    java.lang.reflect.Type setterType = setter.getGenericParameterTypes()[0];
 
-                    fields.add(field);
+                    if (getterType.equals(setterType)) {
+                        DiffableField field = new DiffableField(prop.getName(), getter, setter, getterType);
+                        if (DiffableField.isAnnotationPresent(getter, Id.class)) {
+                            idField = field;
+                        }
+
+                        fields.add(field);
+                    }
                 }
             }
         }
 
         this.idField = idField;
+        this.nameKeyed = Resource.class.isAssignableFrom(diffableClass) && isPrimaryKeyFromResource(diffableClass);
         this.fields = fields.build();
+        this.fieldTable = new FieldTable(this.fields);
+    }
+
+    // Loads the metadata generated by gyro-processor, if the plugin was compiled with it.
+    private static DiffableTypeMetadata findMetadata(Class<?> diffableClass) {
+        Class<?> metadataClass;
+
+        try {
+            metadataClass = Class.forName(
+                diffableClass.getName().replace('$', '_') + DiffableTypeMetadata.SUFFIX,
+                true,
+                diffableClass.getClassLoader());
+
+        } catch (ClassNotFoundException error) {
+            return null;
+        }
+
+        if (!DiffableTypeMetadata.class.isAssignableFrom(metadataClass)) {
+            throw new Bug(String.format(
+                "@|bold %s|@ class must implement @|bold %s|@!",
+                metadataClass.getName(),
+                DiffableTypeMetadata.class.getName()));
+        }
+
+        return Reflections.newInstance(metadataClass.asSubclass(DiffableTypeMetadata.class));
+    }
+
+    private static boolean isPrimaryKeyFromResource(Class<?> diffableClass) {
+        try {
+            return diffableClass.getMethod("primaryKey").getDeclaringClass() == Resource.class;
+
+        } catch (NoSuchMethodException error) {
+            throw new Bug(error);
+        }
     }
 
     public boolean isRoot() {
@@ -132,23 +187,40 @@ public class DiffableType<D extends Diffable> {
         return idField;
     }
 
+    /**
+     * Returns {@code true} if the primary key of this type is derived only from its name, as in
+     * {@link Resource#primaryKey()}.
+     */
+    boolean isNameKeyed() {
+        return nameKeyed;
+    }
+
     public List<DiffableField> getFields() {
-        ImmutableList.Builder<DiffableField> fields = ImmutableList.builder();
+        return fieldTable.fields;
+    }
 
-        fields.addAll(this.fields);
-        fields.addAll(this.modificationFields);
+    /**
+     * Returns the fields whose values are nested diffables that aren't root resources.
+     *
+     * @see DiffableField#shouldBeDiffed
+     */
+    public List<DiffableField> getDiffableFields() {
+        return fieldTable.diffableFields;
+    }
 
-        return fields.build();
+    /**
+     * Returns the fields that aren't in {@link #getDiffableFields()}.
+     */
+    public List<DiffableField> getPlainFields() {
+        return fieldTable.plainFields;
     }
 
-    public DiffableField getField(String name) {
-        for (DiffableField field : getFields()) {
-            if (field.getName().equals(name)) {
-                return field;
-            }
-        }
+    public List<DiffableField> getOutputFields() {
+        return fieldTable.outputFields;
+    }
 
-        return null;
+    public DiffableField getField(String name) {
+        return fieldTable.fieldsByName.get(name);
     }
 
     public D newExternal(RootScope root, Object id) {
@@ -266,7 +338,7 @@ public class DiffableType<D extends Diffable> {
         return errors;
     }
 
-    void modify(Class<? extends Modification<D>> modificationClass) {
+    synchronized void modify(Class<? extends Modification<D>> modificationClass) {
         if (modificationClasses.add(modificationClass)) {
             DiffableType<? extends Modification<D>> modificationType = DiffableType.getInstance(modificationClass);
 
@@ -276,6 +348,11 @@ public class DiffableType<D extends Diffable> {
                     .map(ModificationField::new)
                     .collect(Collectors.toSet())
             );
+
+            fieldTable = new FieldTable(ImmutableList.<DiffableField>builder()
+                .addAll(fields)
+                .addAll(modificationFields)
+                .build());
         }
     }
 
@@ -293,8 +370,13 @@ public class DiffableType<D extends Diffable> {
             Diffable diffable = (Diffable) value;
             Set<String> configuredFields = DiffableInternals.getConfiguredFields(diffable);
 
-            for (DiffableField field : DiffableType.getInstance(diffable.getClass()).getFields()) {
-                if (field.isRequired() || configuredFields.contains(field.getName())) {
+            ValidationPlan plan = DiffableType.getInstance(diffable.getClass()).fieldTable.getValidationPlan();
+            List<DiffableField> fields = plan.fields;
+
+            for (int i = 0, size = fields.size(); i < size; i++) {
+                DiffableField field = fields.get(i);
+
+                if (plan.required.get(i) || configuredFields.contains(field.getName())) {
                     errors.addAll(field.validate(diffable));
 
                     if (field.shouldBeDiffed()) {
@@ -316,4 +398,81 @@ public class DiffableType<D extends Diffable> {
         }
     }
 
+    private static class FieldTable {
+
+        public final List<DiffableField> fields;
+        public final List<DiffableField> diffableFields;
+        public final List<DiffableField> plainFields;
+        public final List<DiffableField> outputFields;
+        public final Map<String, DiffableField> fieldsByName;
+        private volatile ValidationPlan validationPlan;
+
+        public FieldTable(List<DiffableField> fields) {
+            ImmutableList.Builder<DiffableField> diffableFields = ImmutableList.builder();
+            ImmutableList.Builder<DiffableField> plainFields = ImmutableList.builder();
+            ImmutableList.Builder<DiffableField> outputFields = ImmutableList.builder();
+            Map<String, DiffableField> fieldsByName = new LinkedHashMap<>();
+
+            for (DiffableField field : fields) {
+                if (field.shouldBeDiffed()) {
+                    diffableFields.add(field);
+
+                } else {
+                    plainFields.add(field);
+                }
+
+                if (field.isOutput()) {
+                    outputFields.add(field);
+                }
+
+                fieldsByName.putIfAbsent(field.getName(), field);
+            }
+
+            this.fields = fields;
+            this.diffableFields = diffableFields.build();
+            this.plainFields = plainFields.build();
+            this.outputFields = outputFields.build();
+            this.fieldsByName = ImmutableMap.copyOf(fieldsByName);
+        }
+
+        // Built on first use, since finding the validators can require looking up the getters.
+        public ValidationPlan getValidationPlan() {
+            ValidationPlan plan = validationPlan;
+
+            if (plan == null) {
+                plan = new ValidationPlan(fields);
+                validationPlan = plan;
+            }
+
+            return plan;
+        }
+    }
+
+    // Fields that can produce validation errors, either directly or through nested diffables, with the required ones
+    // marked by their index.
+    private static class ValidationPlan {
+
+        public final List<DiffableField> fields;
+        public final BitSet required = new BitSet();
+
+        public ValidationPlan(List<DiffableField> fields) {
+            ImmutableList.Builder<DiffableField> validatedFields = ImmutableList.builder();
+            int index = 0;
+
+            for (DiffableField field : fields) {
+                if (field.hasValidators() || field.shouldBeDiffed()) {
+                    validatedFields.add(field);
+
+                    if (field.isRequired()) {
+                        required.set(index);
+                    }
+
+                    index++;
+                }
+            }
+
+            this.fields = validatedFields.build();
+        }
+    }
+
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.resource;
+
+import java.util.List;
+
+/**
+ * Describes the fields of a diffable type so that {@link DiffableType} doesn't have to introspect it.
+ *
+ * <p>Implementations are generated at compile time by the {@code gyro-processor} annotation processor, in the same
+ * package as the diffable class and named after its binary name with {@code $} replaced by {@code _}, followed by
+ * {@link #SUFFIX}.</p>
+ */
+public interface DiffableTypeMetadata {
+
+    String SUFFIX = "_DiffableTypeMetadata";
+
+    /**
+     * Returns the fields in the same order as {@link java.beans.Introspector} would find them.
+     */
+    List<DiffableFieldMetadata> getFields();
+
+}
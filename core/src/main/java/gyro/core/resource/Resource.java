@@ -50,6 +50,8 @@ public abstract class Resource extends Diffable {
 
     @Override
     public String primaryKey() {
-        return String.format("%s::%s", DiffableType.getInstance(getClass()).getName(), name);
+        String key = getIdentityKey().primaryKey;
+
+        return key != null ? key : String.format("%s::%s", DiffableType.getInstance(getClass()).getName(), name);
     }
 }
@@ -16,9 +16,19 @@
 
 package gyro.core.scope;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 
 import gyro.core.GyroUI;
@@ -39,33 +49,128 @@ public class Defer extends Error {
     }
 
     public static <T> void execute(List<T> items, Consumer<T> consumer) {
+        execute(items, consumer, null);
+    }
+
+    /**
+     * Evaluates all items, retrying the ones that are deferred until no more progress can be made.
+     *
+     * <p>Items that are only waiting for resources to be registered are parked in the given {@code waitList} and are
+     * retried as soon as one of those resources is put into a {@link FileScope} instead of on every pass.</p>
+     *
+     * @param waitList Nullable.
+     */
+    static <T> void execute(List<T> items, Consumer<T> consumer, DeferWaitList waitList) {
         int size = items.size();
+        Deque<Integer> queue = new ArrayDeque<>();
+        Map<Integer, Defer> errors = new TreeMap<>();
+        Set<Integer> blocked = new TreeSet<>();
+        Map<Integer, Set<String>> parked = new TreeMap<>();
+        Map<Integer, Runnable> wakers = new HashMap<>();
+
+        // Wakers can run on other threads, so they only queue the items, which are unparked on this thread.
+        Queue<Integer> woken = new ConcurrentLinkedQueue<>();
+
+        for (int i = 0; i < size; i++) {
+            queue.add(i);
+        }
+
+        try {
+            boolean retriedParked = false;
+
+            while (true) {
+                boolean progress = false;
+
+                for (Integer next; (next = next(queue, woken, parked, wakers, waitList)) != null; ) {
+                    Integer i = next;
+
+                    try {
+                        consumer.accept(items.get(i));
+                        errors.remove(i);
+                        progress = true;
+
+                    } catch (Defer error) {
+                        errors.put(i, error);
 
-        while (true) {
-            List<Defer> errors = new ArrayList<>();
-            List<T> deferred = new ArrayList<>();
+                        Set<String> keys = waitList != null ? error.getWaitKeys() : null;
 
-            for (T item : items) {
-                try {
-                    consumer.accept(item);
+                        if (keys == null || keys.isEmpty()) {
+                            blocked.add(i);
 
-                } catch (Defer error) {
-                    errors.add(error);
-                    deferred.add(item);
+                        } else {
+                            Runnable waker = () -> woken.add(i);
+
+                            parked.put(i, keys);
+                            wakers.put(i, waker);
+                            keys.forEach(k -> waitList.add(k, waker));
+                        }
+                    }
+                }
+
+                if (errors.isEmpty()) {
+                    break;
+                }
+
+                if (progress) {
+                    retriedParked = false;
+
+                } else if (retriedParked || parked.isEmpty()) {
+                    throw new ExecuteDefer(new ArrayList<>(errors.values()));
+
+                } else {
+
+                    // Nothing changed, but the parked items may have been resolved without a wake-up, so try them
+                    // once more before giving up.
+                    retriedParked = true;
+
+                    new ArrayList<>(parked.keySet()).forEach(i -> {
+                        unpark(i, parked, wakers, waitList);
+                        blocked.add(i);
+                    });
                 }
-            }
 
-            if (deferred.isEmpty()) {
-                break;
+                queue.addAll(blocked);
+                blocked.clear();
+            }
 
-            } else if (size == deferred.size()) {
-                throw new ExecuteDefer(errors);
+        } finally {
+            new ArrayList<>(parked.keySet()).forEach(i -> unpark(i, parked, wakers, waitList));
+        }
+    }
 
-            } else {
-                items = deferred;
-                size = items.size();
+    // Returns the next item to evaluate, including the ones woken since the last call, or null if there are none.
+    private static Integer next(
+        Deque<Integer> queue,
+        Queue<Integer> woken,
+        Map<Integer, Set<String>> parked,
+        Map<Integer, Runnable> wakers,
+        DeferWaitList waitList) {
+
+        for (Integer i; (i = woken.poll()) != null; ) {
+            if (unpark(i, parked, wakers, waitList)) {
+                queue.add(i);
             }
         }
+
+        return queue.poll();
+    }
+
+    private static boolean unpark(
+        Integer index,
+        Map<Integer, Set<String>> parked,
+        Map<Integer, Runnable> wakers,
+        DeferWaitList waitList) {
+
+        Set<String> keys = parked.remove(index);
+
+        if (keys == null) {
+            return false;
+        }
+
+        Runnable waker = wakers.remove(index);
+
+        keys.forEach(k -> waitList.remove(k, waker));
+        return true;
     }
 
     public static void writeErrors(GyroUI ui, String message, Collection<? extends Defer> errors) {
@@ -95,6 +200,31 @@ public class Defer extends Error {
         }
     }
 
+    /**
+     * Returns the keys of the resources that must be registered before this can be retried, or {@code null} if the
+     * underlying cause isn't a missing resource.
+     */
+    Set<String> getWaitKeys() {
+        Defer cause = this;
+
+        for (Defer c; (c = cause.getCause()) != null; ) {
+            cause = c;
+        }
+
+        if (cause instanceof FindDefer) {
+            Set<String> keys = new LinkedHashSet<>();
+
+            keys.add(((FindDefer) cause).getKey());
+            return keys;
+
+        } else if (cause instanceof ExecuteDefer) {
+            return cause.getWaitKeys();
+
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public synchronized Defer getCause() {
         return (Defer) super.getCause();
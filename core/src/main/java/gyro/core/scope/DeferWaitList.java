@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Deferred evaluations waiting for resources to be registered, keyed by the resource type and name.
+ *
+ * <p>Concurrent evaluations can also block in {@link #await} until a resource is registered.</p>
+ */
+class DeferWaitList {
+
+    private final Map<String, List<Runnable>> waiters = new HashMap<>();
+    private final Map<String, List<Blocked>> blocked = new HashMap<>();
+    private int running;
+    private int waiting;
+
+    /**
+     * Registers the given {@code waiter} to be run when the given {@code key} is woken.
+     *
+     * <p>The {@code waiter} runs on the thread that registers the resource, which may not be the one that added it,
+     * so it must be thread-safe.</p>
+     */
+    public synchronized void add(String key, Runnable waiter) {
+        waiters.computeIfAbsent(key, k -> new ArrayList<>()).add(waiter);
+    }
+
+    public synchronized void remove(String key, Runnable waiter) {
+        List<Runnable> keyWaiters = waiters.get(key);
+
+        if (keyWaiters != null) {
+            keyWaiters.remove(waiter);
+
+            if (keyWaiters.isEmpty()) {
+                waiters.remove(key);
+            }
+        }
+    }
+
+    public synchronized void wake(String key) {
+        List<Runnable> keyWaiters = waiters.remove(key);
+
+        if (keyWaiters != null) {
+            keyWaiters.forEach(Runnable::run);
+        }
+
+        List<Blocked> keyBlocked = blocked.remove(key);
+
+        if (keyBlocked != null) {
+            keyBlocked.forEach(b -> b.released = true);
+
+            running += keyBlocked.size();
+            waiting -= keyBlocked.size();
+
+            notifyAll();
+        }
+    }
+
+    /**
+     * Registers the given number of concurrent evaluations that may {@link #await}.
+     */
+    public synchronized void start(int count) {
+        running += count;
+    }
+
+    /**
+     * Marks the end of one of the concurrent evaluations registered with {@link #start}.
+     */
+    public synchronized void finish() {
+        --running;
+        releaseIfStuck();
+    }
+
+    /**
+     * Blocks until the given {@code finder} returns a value after the given {@code key} is woken, or until all other
+     * concurrent evaluations are waiting too, in which case nothing can be registered anymore and {@code null} is
+     * returned.
+     *
+     * @param key Nonnull.
+     * @param finder Nonnull.
+     * @return Nullable.
+     */
+    public synchronized <T> T await(String key, Supplier<T> finder) {
+        while (true) {
+            T value = finder.get();
+
+            if (value != null) {
+                return value;
+            }
+
+            Blocked b = new Blocked();
+
+            blocked.computeIfAbsent(key, k -> new ArrayList<>()).add(b);
+
+            --running;
+            ++waiting;
+
+            releaseIfStuck();
+
+            try {
+                while (!b.released) {
+                    ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+                        @Override
+                        public boolean block() throws InterruptedException {
+                            DeferWaitList.this.wait();
+                            return true;
+                        }
+
+                        @Override
+                        public boolean isReleasable() {
+                            return b.released;
+                        }
+                    });
+                }
+
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+
+                if (!b.released) {
+                    blocked.get(key).remove(b);
+
+                    ++running;
+                    --waiting;
+                }
+
+                return null;
+            }
+
+            if (b.stuck) {
+                return null;
+            }
+        }
+    }
+
+    // Releases all blocked evaluations when none are running, since the resources they need can't be registered.
+    private void releaseIfStuck() {
+        if (running > 0 || waiting == 0) {
+            return;
+        }
+
+        blocked.values().stream().flatMap(List::stream).forEach(b -> {
+            b.released = true;
+            b.stuck = true;
+        });
+
+        blocked.clear();
+
+        running += waiting;
+        waiting = 0;
+
+        notifyAll();
+    }
+
+    private static class Blocked {
+
+        public boolean released;
+        public boolean stuck;
+
+    }
+
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import gyro.lang.ast.Node;
+import gyro.lang.ast.NodeVisitor;
+import gyro.lang.ast.PairNode;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.DirectiveSection;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.KeyBlockNode;
+import gyro.lang.ast.block.ResourceNode;
+import gyro.lang.ast.value.BinaryNode;
+import gyro.lang.ast.value.IndexedNode;
+import gyro.lang.ast.value.InterpolatedStringNode;
+import gyro.lang.ast.value.ListNode;
+import gyro.lang.ast.value.MapNode;
+import gyro.lang.ast.value.Option;
+import gyro.lang.ast.value.ReferenceNode;
+import gyro.lang.ast.value.ValueNode;
+import gyro.util.Bug;
+
+/**
+ * Statically analyzed dependencies between top-level nodes.
+ *
+ * <p>Only references that can be resolved without evaluation, such as {@code $(type name)} with a literal name or
+ * {@code $(variable)}, become edges. Everything else is left to the regular {@link Defer} handling.</p>
+ */
+class DependencyGraph {
+
+    private final Predicate<String> resolver;
+    private final List<Node> nodes = new ArrayList<>();
+    private final List<String> files = new ArrayList<>();
+
+    private List<Set<Integer>> edges;
+    private List<Set<Integer>> strongEdges;
+    private Map<Integer, Map<Integer, ReferenceNode>> strongReferences;
+
+    /**
+     * @param resolver Tests whether the given name is a reference resolver. Nonnull.
+     */
+    public DependencyGraph(Predicate<String> resolver) {
+        this.resolver = resolver;
+    }
+
+    public void add(String file, Node node) {
+        files.add(file);
+        nodes.add(node);
+        edges = null;
+    }
+
+    /**
+     * Returns the nodes in dependency order, excluding the ones that are part of a circular dependency. Independent
+     * nodes and nodes whose dependencies can't be ordered keep their original relative order.
+     */
+    public List<Node> sort() {
+        analyze();
+
+        int size = nodes.size();
+        Map<Integer, Integer> circular = findCircular();
+        int[] pending = new int[size];
+        List<List<Integer>> dependents = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            dependents.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (circular.containsKey(i)) {
+                continue;
+            }
+
+            for (Integer d : edges.get(i)) {
+                if (!circular.containsKey(d)) {
+                    ++pending[i];
+                    dependents.get(d).add(i);
+                }
+            }
+        }
+
+        TreeSet<Integer> ready = new TreeSet<>();
+        TreeSet<Integer> remaining = new TreeSet<>();
+
+        for (int i = 0; i < size; i++) {
+            if (!circular.containsKey(i)) {
+                remaining.add(i);
+
+                if (pending[i] == 0) {
+                    ready.add(i);
+                }
+            }
+        }
+
+        List<Node> sorted = new ArrayList<>();
+
+        while (!remaining.isEmpty()) {
+
+            // Dependencies that can't be ordered, for example because of a cycle through a variable, are broken by
+            // falling back to the original order.
+            Integer i = ready.isEmpty() ? remaining.first() : ready.pollFirst();
+
+            remaining.remove(i);
+            sorted.add(nodes.get(i));
+
+            for (Integer d : dependents.get(i)) {
+                if (--pending[d] == 0 && remaining.contains(d)) {
+                    ready.add(d);
+                }
+            }
+        }
+
+        return sorted;
+    }
+
+    /**
+     * Returns the errors describing the resources that reference each other in a cycle. These resources are never
+     * evaluated since they can't be resolved.
+     */
+    public List<Defer> getCircularErrors() {
+        analyze();
+
+        List<Defer> errors = new ArrayList<>();
+
+        Map<Integer, Integer> circular = findCircular();
+
+        for (Map.Entry<Integer, Integer> entry : circular.entrySet()) {
+            Integer i = entry.getKey();
+
+            // Name a resource within the same cycle, since the others may exist just fine.
+            Integer d = strongEdges.get(i)
+                .stream()
+                .filter(e -> entry.getValue().equals(circular.get(e)))
+                .findFirst()
+                .orElseThrow(() -> new Bug("No strong edge within the cycle!"));
+
+            ResourceNode node = (ResourceNode) nodes.get(i);
+            ResourceNode dependency = (ResourceNode) nodes.get(d);
+
+            errors.add(new CreateDefer(
+                new FindDefer(
+                    strongReferences.get(i).get(d),
+                    dependency.getType(),
+                    getName(dependency)),
+                node.getType(),
+                getName(node)));
+        }
+
+        return errors;
+    }
+
+    private void analyze() {
+        if (edges != null) {
+            return;
+        }
+
+        int size = nodes.size();
+        Map<String, Integer> resources = new HashMap<>();
+        Map<String, Set<Integer>> types = new HashMap<>();
+        Map<String, Set<Integer>> definitions = new HashMap<>();
+        Map<String, Integer> variables = new HashMap<>();
+        Map<String, Set<String>> virtualTypes = new HashMap<>();
+        List<Collector> collectors = new ArrayList<>();
+
+        // Find out what each node provides.
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            Collector collector = new Collector();
+
+            collector.visit(node, Boolean.FALSE);
+            collectors.add(collector);
+
+            if (node instanceof ResourceNode) {
+                String name = getName((ResourceNode) node);
+
+                if (name != null) {
+                    resources.putIfAbsent(((ResourceNode) node).getType() + "::" + name, i);
+                }
+
+            } else if (node instanceof PairNode) {
+                String key = getString(((PairNode) node).getKey());
+
+                if (key != null) {
+                    variables.putIfAbsent(files.get(i) + ":" + key, i);
+                }
+
+            } else if (node instanceof KeyBlockNode) {
+                variables.putIfAbsent(files.get(i) + ":" + ((KeyBlockNode) node).getKey(), i);
+
+            } else if (node instanceof DirectiveNode) {
+                DirectiveNode directive = (DirectiveNode) node;
+
+                if ("virtual".equals(directive.getName()) && !directive.getArguments().isEmpty()) {
+                    String type = getString(directive.getArguments().get(0));
+
+                    if (type != null) {
+                        definitions.computeIfAbsent(type, k -> new LinkedHashSet<>()).add(i);
+                        virtualTypes.put(type, collector.types);
+                    }
+                }
+            }
+
+            for (String type : collector.types) {
+                types.computeIfAbsent(type, k -> new LinkedHashSet<>()).add(i);
+            }
+        }
+
+        // Resources of a virtual type create the resources defined in the virtual body.
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+
+            if (node instanceof ResourceNode) {
+                for (String type : virtualTypes.getOrDefault(((ResourceNode) node).getType(), Collections.emptySet())) {
+                    types.computeIfAbsent(type, k -> new LinkedHashSet<>()).add(i);
+                }
+            }
+        }
+
+        // Find out what each node needs.
+        edges = new ArrayList<>();
+        strongEdges = new ArrayList<>();
+        strongReferences = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            Node node = nodes.get(i);
+            Collector collector = collectors.get(i);
+            Set<Integer> nodeEdges = new LinkedHashSet<>();
+            Set<Integer> nodeStrongEdges = new LinkedHashSet<>();
+
+            for (String type : collector.types) {
+                nodeEdges.addAll(definitions.getOrDefault(type, Collections.emptySet()));
+            }
+
+            for (Map.Entry<ReferenceNode, Boolean> entry : collector.references.entrySet()) {
+                ReferenceNode reference = entry.getKey();
+                List<Node> arguments = reference.getArguments();
+                String first = getString(arguments.get(0));
+
+                if (first == null || resolver.test(first)) {
+                    continue;
+                }
+
+                if (!first.contains("::")) {
+                    Integer variable = variables.get(files.get(i) + ":" + first);
+
+                    if (variable != null) {
+                        nodeEdges.add(variable);
+                    }
+
+                    continue;
+                }
+
+                Set<Integer> typeNodes = types.getOrDefault(first, Collections.emptySet());
+
+                for (Node argument : arguments.subList(1, arguments.size())) {
+                    String name = getString(argument);
+
+                    if (name == null || name.endsWith("*")) {
+                        nodeEdges.addAll(typeNodes);
+                        continue;
+                    }
+
+                    Integer resource = resources.get(first + "::" + name);
+
+                    if (resource != null) {
+                        nodeEdges.add(resource);
+
+                        if (!entry.getValue() && node instanceof ResourceNode && getName((ResourceNode) node) != null) {
+                            nodeStrongEdges.add(resource);
+                            strongReferences.computeIfAbsent(i, k -> new HashMap<>()).putIfAbsent(resource, reference);
+                        }
+
+                    } else {
+                        nodeEdges.addAll(typeNodes);
+                    }
+                }
+            }
+
+            nodeEdges.remove(i);
+            nodeStrongEdges.remove(i);
+            edges.add(nodeEdges);
+            strongEdges.add(nodeStrongEdges);
+        }
+    }
+
+    // Tarjan's algorithm over the strong edges to find the nodes that are part of a cycle, along with the component
+    // that each one belongs to.
+    private Map<Integer, Integer> findCircular() {
+        int size = nodes.size();
+        int[] indexes = new int[size];
+        int[] lowLinks = new int[size];
+        boolean[] onStack = new boolean[size];
+        Deque<Integer> stack = new ArrayDeque<>();
+        Map<Integer, Integer> circular = new TreeMap<>();
+        int[] counter = new int[] { 1 };
+
+        for (int i = 0; i < size; i++) {
+            if (indexes[i] == 0) {
+                connect(i, indexes, lowLinks, onStack, stack, circular, counter);
+            }
+        }
+
+        return circular;
+    }
+
+    private void connect(
+        int i,
+        int[] indexes,
+        int[] lowLinks,
+        boolean[] onStack,
+        Deque<Integer> stack,
+        Map<Integer, Integer> circular,
+        int[] counter) {
+
+        indexes[i] = lowLinks[i] = counter[0]++;
+        stack.push(i);
+        onStack[i] = true;
+
+        for (Integer d : strongEdges.get(i)) {
+            if (indexes[d] == 0) {
+                connect(d, indexes, lowLinks, onStack, stack, circular, counter);
+                lowLinks[i] = Math.min(lowLinks[i], lowLinks[d]);
+
+            } else if (onStack[d]) {
+                lowLinks[i] = Math.min(lowLinks[i], indexes[d]);
+            }
+        }
+
+        if (lowLinks[i] == indexes[i]) {
+            List<Integer> component = new ArrayList<>();
+            Integer c;
+
+            do {
+                c = stack.pop();
+                onStack[c] = false;
+                component.add(c);
+            } while (c != i);
+
+            if (component.size() > 1) {
+                component.forEach(m -> circular.put(m, i));
+            }
+        }
+    }
+
+    private static String getName(ResourceNode node) {
+        return getString(node.getName());
+    }
+
+    private static String getString(Node node) {
+        if (node instanceof ValueNode) {
+            Object value = ((ValueNode) node).getValue();
+
+            if (value instanceof String) {
+                return (String) value;
+            }
+        }
+
+        return null;
+    }
+
+    // Collects all references and nested resource types within a node. The context is whether the node is evaluated
+    // conditionally, i.e. inside of a directive.
+    private static class Collector implements NodeVisitor<Boolean, Void, RuntimeException> {
+
+        public final Map<ReferenceNode, Boolean> references = new LinkedHashMap<>();
+        public final Set<String> types = new LinkedHashSet<>();
+
+        private void visitOptions(List<Option> options, Boolean conditional) {
+            for (Option option : options) {
+                visit(option.getArguments(), conditional);
+            }
+        }
+
+        @Override
+        public Void visitDirective(DirectiveNode node, Boolean conditional) {
+            visit(node.getArguments(), conditional);
+            visitOptions(node.getOptions(), conditional);
+            visit(node.getBody(), Boolean.TRUE);
+
+            for (DirectiveSection section : node.getSections()) {
+                visit(section.getArguments(), Boolean.TRUE);
+                visit(section.getBody(), Boolean.TRUE);
+            }
+
+            return null;
+        }
+
+        @Override
+        public Void visitPair(PairNode node, Boolean conditional) {
+            visit(node.getKey(), conditional);
+            visit(node.getValue(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitFile(FileNode node, Boolean conditional) {
+            visit(node.getBody(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitKeyBlock(KeyBlockNode node, Boolean conditional) {
+            if (node.getName() != null) {
+                visit(node.getName(), conditional);
+            }
+
+            visit(node.getBody(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitResource(ResourceNode node, Boolean conditional) {
+            types.add(node.getType());
+            visit(node.getName(), conditional);
+            visit(node.getBody(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitBinary(BinaryNode node, Boolean conditional) {
+            visit(node.getLeft(), conditional);
+            visit(node.getRight(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitIndexed(IndexedNode node, Boolean conditional) {
+            visit(node.getValue(), conditional);
+            visit(node.getIndexes(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitInterpolatedString(InterpolatedStringNode node, Boolean conditional) {
+            visit(node.getItems(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitList(ListNode node, Boolean conditional) {
+            visit(node.getItems(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitMap(MapNode node, Boolean conditional) {
+            for (PairNode entry : node.getEntries()) {
+                visit(entry, conditional);
+            }
+
+            return null;
+        }
+
+        @Override
+        public Void visitReference(ReferenceNode node, Boolean conditional) {
+            if (!node.getArguments().isEmpty()) {
+                references.merge(node, conditional, (a, b) -> a && b);
+            }
+
+            visit(node.getArguments(), conditional);
+            visitOptions(node.getOptions(), conditional);
+            return null;
+        }
+
+        @Override
+        public Void visitValue(ValueNode node, Boolean conditional) {
+            return null;
+        }
+
+    }
+
+}
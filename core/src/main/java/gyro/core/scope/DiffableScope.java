@@ -17,7 +17,9 @@
 package gyro.core.scope;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import gyro.core.GyroException;
@@ -33,6 +35,8 @@ public class DiffableScope extends Scope {
     private final BlockNode block;
     private final List<DiffableProcessor> processors;
     private final List<Node> stateNodes;
+    private final Map<Node, EvaluationMemo> memos;
+    private EvaluationMemo memo;
 
     public DiffableScope(Scope parent, BlockNode block) {
         super(parent);
@@ -40,6 +44,7 @@ public class DiffableScope extends Scope {
         this.block = block;
         this.processors = new ArrayList<>();
         this.stateNodes = new ArrayList<>();
+        this.memos = new HashMap<>();
     }
 
     public DiffableScope(DiffableScope scope) {
@@ -48,6 +53,7 @@ public class DiffableScope extends Scope {
         this.block = scope.block;
         this.processors = new ArrayList<>(scope.processors);
         this.stateNodes = new ArrayList<>(scope.stateNodes);
+        this.memos = scope.memos;
         this.getSettingsByClass().putAll(scope.getSettingsByClass().asMap());
     }
 
@@ -59,6 +65,20 @@ public class DiffableScope extends Scope {
         return stateNodes;
     }
 
+    // Shared with the copies of this scope so that reevaluations can reuse the results.
+    Map<Node, EvaluationMemo> getMemos() {
+        return memos;
+    }
+
+    // The memo that's recording the reads of the item that's being evaluated.
+    EvaluationMemo getMemo() {
+        return memo;
+    }
+
+    void setMemo(EvaluationMemo memo) {
+        this.memo = memo;
+    }
+
     public void addProcessor(DiffableProcessor processor) {
         processors.add(processor);
     }
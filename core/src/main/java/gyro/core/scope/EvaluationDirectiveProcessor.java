@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import gyro.core.GyroException;
+import gyro.core.Type;
+import gyro.core.directive.DirectiveProcessor;
+import gyro.lang.ast.block.DirectiveNode;
+
+@Type("evaluation")
+public class EvaluationDirectiveProcessor extends DirectiveProcessor<RootScope> {
+
+    @Override
+    public void process(RootScope scope, DirectiveNode node) {
+        validateArguments(node, 1, 0);
+
+        EvaluationSettings settings = scope.getSettings(EvaluationSettings.class);
+
+        for (String mode : getArguments(scope, node, String.class)) {
+            switch (mode) {
+                case "graph":
+                    settings.setGraph(true);
+                    break;
+
+                case "parallel":
+                    settings.setParallel(true);
+                    break;
+
+                case "check":
+                    settings.setCheck(true);
+                    break;
+
+                case "parallel-diff":
+                    settings.setParallelDiff(true);
+                    break;
+
+                default:
+                    throw new GyroException(node, String.format(
+                        "@|bold %s|@ isn't a valid evaluation mode!",
+                        mode));
+            }
+        }
+    }
+
+}
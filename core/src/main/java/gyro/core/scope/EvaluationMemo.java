@@ -0,0 +1,257 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import gyro.core.resource.Diffable;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.Resource;
+
+/**
+ * Result of evaluating an item in a resource block along with the versions of the resources that it read, so that
+ * the result can be reused when the block is reevaluated and none of those resources changed in the meantime.
+ */
+final class EvaluationMemo {
+
+    private static final Object NOT_FORKABLE = new Object();
+
+    private final Map<Diffable, Integer> versions = new IdentityHashMap<>();
+    private final Map<String, Object> variables = new HashMap<>();
+    private boolean cacheable = true;
+    private Object value;
+
+    /**
+     * Returns a copy of the value so that the scopes reusing it don't share its collections, which the setters that
+     * take them without conversion would otherwise alias.
+     */
+    public Object getValue() {
+        return copy(value);
+    }
+
+    public void setValue(Object value) {
+        this.value = copy(value);
+    }
+
+    /**
+     * Marks the result as not reusable, for example because it came from a reference resolver that may read
+     * anything.
+     */
+    public void setUncacheable() {
+        cacheable = false;
+    }
+
+    public void read(Object value) {
+        if (value instanceof Diffable) {
+            Diffable root = (Diffable) value;
+
+            while (root.parent() != null) {
+                root = root.parent();
+            }
+
+            versions.putIfAbsent(root, DiffableInternals.getVersion(root));
+
+        } else if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                read(item);
+            }
+        }
+    }
+
+    /**
+     * Records a variable that was read from the enclosing scopes. Those don't change within a root scope, but they
+     * can in its forks.
+     */
+    public void readVariable(String name, Object value) {
+        variables.put(name, value);
+    }
+
+    public boolean isValid() {
+        if (!cacheable) {
+            return false;
+        }
+
+        for (Map.Entry<Diffable, Integer> entry : versions.entrySet()) {
+            if (DiffableInternals.getVersion(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns a copy of this memo that can be used by the given {@code scope} within a fork of the root scope that
+     * this memo was recorded in, or {@code null} if the result can't be reused there.
+     */
+    public EvaluationMemo fork(DiffableScope scope) {
+        if (!cacheable) {
+            return null;
+        }
+
+        RootScope root = scope.getRootScope();
+        RootScope base = root.getBase();
+        EvaluationMemo memo = new EvaluationMemo();
+
+        for (Diffable diffable : versions.keySet()) {
+            Object forked = fork(root, base, diffable);
+
+            if (forked == NOT_FORKABLE || !root.isUnchangedFromBase(getKey(diffable))) {
+                return null;
+            }
+
+            memo.versions.put((Diffable) forked, DiffableInternals.getVersion((Diffable) forked));
+        }
+
+        for (Map.Entry<String, Object> entry : variables.entrySet()) {
+            String name = entry.getKey();
+            Object value;
+
+            try {
+                value = scope.find(null, name);
+
+            } catch (Defer error) {
+                return null;
+            }
+
+            if (!Objects.equals(value, entry.getValue())) {
+                return null;
+            }
+
+            memo.variables.put(name, value);
+        }
+
+        Object forkedValue = fork(root, base, value);
+
+        if (forkedValue == NOT_FORKABLE) {
+            return null;
+        }
+
+        memo.value = forkedValue;
+        return memo;
+    }
+
+    // Copies the collections, but not the scopes, resources or other values in them.
+    private static Object copy(Object value) {
+        if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+
+            for (Object item : (List<?>) value) {
+                list.add(copy(item));
+            }
+
+            return list;
+
+        } else if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+
+            for (Object item : (Set<?>) value) {
+                set.add(copy(item));
+            }
+
+            return set;
+
+        } else if (value instanceof Map && !(value instanceof Scope)) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(entry.getKey(), copy(entry.getValue()));
+            }
+
+            return map;
+
+        } else {
+            return value;
+        }
+    }
+
+    private static String getKey(Diffable diffable) {
+        return DiffableType.getInstance(diffable).getName() + "::" + DiffableInternals.getName(diffable);
+    }
+
+    // Replaces the resources from the base with the ones in the fork.
+    private static Object fork(RootScope root, RootScope base, Object value) {
+        if (value instanceof Resource && DiffableType.getInstance((Resource) value).isRoot()) {
+            String key = getKey((Resource) value);
+            Resource forked = base.getResources().get(key) == value ? root.getResources().get(key) : null;
+
+            return forked != null ? forked : NOT_FORKABLE;
+
+        } else if (value instanceof Diffable || value instanceof Scope) {
+            return NOT_FORKABLE;
+
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+
+            for (Object item : (List<?>) value) {
+                Object forked = fork(root, base, item);
+
+                if (forked == NOT_FORKABLE) {
+                    return NOT_FORKABLE;
+                }
+
+                list.add(forked);
+            }
+
+            return list;
+
+        } else if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+
+            for (Object item : (Set<?>) value) {
+                Object forked = fork(root, base, item);
+
+                if (forked == NOT_FORKABLE) {
+                    return NOT_FORKABLE;
+                }
+
+                set.add(forked);
+            }
+
+            return set;
+
+        } else if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object forked = fork(root, base, entry.getValue());
+
+                if (forked == NOT_FORKABLE) {
+                    return NOT_FORKABLE;
+                }
+
+                map.put(entry.getKey(), forked);
+            }
+
+            return map;
+
+        } else {
+            return value;
+        }
+    }
+
+}
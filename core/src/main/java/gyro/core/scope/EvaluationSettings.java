@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+public class EvaluationSettings extends Settings {
+
+    private boolean graph;
+    private boolean parallel;
+    private boolean check;
+    private boolean parallelDiff;
+
+    /**
+     * Evaluates top-level nodes in the order of their statically detected dependencies instead of repeatedly
+     * retrying every deferred node.
+     */
+    public boolean isGraph() {
+        return graph;
+    }
+
+    public void setGraph(boolean graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Parses all files concurrently and evaluates them on a fork-join pool, waiting on resources that are defined
+     * in other files instead of deferring.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Checks that the resources found through the indexes match the ones in the file scopes, and fails otherwise.
+     * Slower, so it's meant for tests.
+     */
+    public boolean isCheck() {
+        return check;
+    }
+
+    public void setCheck(boolean check) {
+        this.check = check;
+    }
+
+    /**
+     * Computes the changes for the root resources concurrently when looking for changes.
+     *
+     * @see gyro.core.diff.Diff#setParallel
+     */
+    public boolean isParallelDiff() {
+        return parallelDiff;
+    }
+
+    public void setParallelDiff(boolean parallelDiff) {
+        this.parallelDiff = parallelDiff;
+    }
+
+}
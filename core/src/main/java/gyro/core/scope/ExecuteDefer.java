@@ -38,6 +38,23 @@ class ExecuteDefer extends Defer {
         this.errors = errors;
     }
 
+    @Override
+    Set<String> getWaitKeys() {
+        Set<String> keys = new LinkedHashSet<>();
+
+        for (Defer error : errors) {
+            Set<String> errorKeys = error.getWaitKeys();
+
+            if (errorKeys == null) {
+                return null;
+            }
+
+            keys.addAll(errorKeys);
+        }
+
+        return keys;
+    }
+
     @Override
     public void write(GyroUI ui) {
         List<Defer> flattenedErrors = new ArrayList<>();
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import gyro.core.GyroException;
+import gyro.lang.ast.Node;
+import gyro.lang.ast.NodeVisitor;
+import gyro.lang.ast.PairNode;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.KeyBlockNode;
+import gyro.lang.ast.block.ResourceNode;
+import gyro.lang.ast.value.BinaryNode;
+import gyro.lang.ast.value.IndexedNode;
+import gyro.lang.ast.value.InterpolatedStringNode;
+import gyro.lang.ast.value.ListNode;
+import gyro.lang.ast.value.MapNode;
+import gyro.lang.ast.value.ReferenceNode;
+import gyro.lang.ast.value.ValueNode;
+
+/**
+ * Compiles value nodes into {@link Expression}s once so that evaluating them again, for example when a resource is
+ * reevaluated during diff and execute, doesn't need to interpret the tree.
+ *
+ * <p>Operators are looked up, constant indexes and interpolated parts are converted to strings ahead of time.
+ * Binary operations and interpolated strings that only use constants are folded into a {@link Constant}. Nodes that
+ * aren't values, such as directives and resources, fall back to {@link NodeEvaluator#visit}.</p>
+ */
+class ExpressionCompiler implements NodeVisitor<Void, Expression, RuntimeException> {
+
+    private static final ExpressionCompiler INSTANCE = new ExpressionCompiler();
+
+    // Weak keys compare by identity, which matches how nodes are compared.
+    private static final LoadingCache<Node, Expression> EXPRESSIONS = CacheBuilder.newBuilder()
+        .weakKeys()
+        .build(new CacheLoader<Node, Expression>() {
+
+            @Override
+            public Expression load(Node node) {
+                return INSTANCE.visit(node, null);
+            }
+        });
+
+    public static Expression compile(Node node) {
+        return EXPRESSIONS.getUnchecked(node);
+    }
+
+    private Expression fallback(Node node) {
+        return (evaluator, scope) -> evaluator.visit(node, scope);
+    }
+
+    private List<Expression> compileAll(List<Node> nodes) {
+        return nodes.stream()
+            .map(n -> visit(n, null))
+            .collect(Collectors.toList());
+    }
+
+    // Returns the string form of the node if it's a constant.
+    private String toConstantString(Node node) {
+        if (node instanceof ValueNode) {
+            Object value = ((ValueNode) node).getValue();
+
+            if (value != null) {
+                return value.toString();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Expression visitDirective(DirectiveNode node, Void context) {
+        return fallback(node);
+    }
+
+    @Override
+    public Expression visitPair(PairNode node, Void context) {
+        return fallback(node);
+    }
+
+    @Override
+    public Expression visitFile(FileNode node, Void context) {
+        return fallback(node);
+    }
+
+    @Override
+    public Expression visitKeyBlock(KeyBlockNode node, Void context) {
+        return fallback(node);
+    }
+
+    @Override
+    public Expression visitResource(ResourceNode node, Void context) {
+        return fallback(node);
+    }
+
+    @Override
+    public Expression visitBinary(BinaryNode node, Void context) {
+        String operator = node.getOperator();
+        BiFunction<Object, Object, Object> function = NodeEvaluator.BINARY_FUNCTIONS.get(operator);
+
+        if (function == null) {
+            return (evaluator, scope) -> {
+                throw new GyroException(String.format(
+                    "@|bold %s|@ is not a valid binary operator!",
+                    operator));
+            };
+        }
+
+        Expression left = visit(node.getLeft(), context);
+        Expression right = visit(node.getRight(), context);
+
+        if (left instanceof Constant && right instanceof Constant) {
+            try {
+                return new Constant(function.apply(((Constant) left).getValue(), ((Constant) right).getValue()));
+
+            } catch (RuntimeException error) {
+                // Report the error during the evaluation instead.
+            }
+        }
+
+        return (evaluator, scope) -> function.apply(
+            left.evaluate(evaluator, scope),
+            right.evaluate(evaluator, scope));
+    }
+
+    @Override
+    public Expression visitIndexed(IndexedNode node, Void context) {
+        Expression value = visit(node.getValue(), context);
+        List<Node> indexNodes = node.getIndexes();
+        int size = indexNodes.size();
+        String[] constantIndexes = new String[size];
+        Expression[] indexes = new Expression[size];
+
+        for (int i = 0; i < size; i++) {
+            Node indexNode = indexNodes.get(i);
+            constantIndexes[i] = toConstantString(indexNode);
+            indexes[i] = visit(indexNode, context);
+        }
+
+        return (evaluator, scope) -> {
+            Object v = value.evaluate(evaluator, scope);
+
+            for (int i = 0; i < size && v != null; i++) {
+                String index = constantIndexes[i];
+
+                if (index == null) {
+                    Object indexValue = indexes[i].evaluate(evaluator, scope);
+
+                    if (indexValue == null) {
+                        return null;
+                    }
+
+                    index = indexValue.toString();
+                }
+
+                NodeEvaluator.recordRead(scope, v);
+                v = NodeEvaluator.getValue(node, v, index);
+            }
+
+            return v;
+        };
+    }
+
+    @Override
+    public Expression visitInterpolatedString(InterpolatedStringNode node, Void context) {
+        List<Node> items = node.getItems();
+        int size = items.size();
+        String[] constants = new String[size];
+        Expression[] expressions = new Expression[size];
+
+        boolean constant = true;
+
+        for (int i = 0; i < size; i++) {
+            Node item = items.get(i);
+            constants[i] = toConstantString(item);
+
+            if (constants[i] == null) {
+                expressions[i] = visit(item, context);
+
+                if (expressions[i] instanceof Constant) {
+                    Object value = ((Constant) expressions[i]).getValue();
+
+                    if (value != null) {
+                        constants[i] = value.toString();
+                    }
+
+                } else {
+                    constant = false;
+                }
+            }
+        }
+
+        if (constant) {
+            return new Constant(Stream.of(constants).filter(Objects::nonNull).collect(Collectors.joining()));
+        }
+
+        return (evaluator, scope) -> {
+            StringBuilder sb = new StringBuilder();
+
+            for (int i = 0; i < size; i++) {
+                if (constants[i] != null) {
+                    sb.append(constants[i]);
+
+                } else {
+                    Object value = expressions[i].evaluate(evaluator, scope);
+
+                    if (value != null) {
+                        sb.append(value);
+                    }
+                }
+            }
+
+            return sb.toString();
+        };
+    }
+
+    @Override
+    public Expression visitList(ListNode node, Void context) {
+        List<Expression> items = compileAll(node.getItems());
+
+        return (evaluator, scope) -> {
+            List<Object> list = new ArrayList<>();
+
+            for (Expression item : items) {
+                list.add(item.evaluate(evaluator, scope));
+            }
+
+            return list;
+        };
+    }
+
+    @Override
+    public Expression visitMap(MapNode node, Void context) {
+        List<PairNode> entries = node.getEntries();
+        int size = entries.size();
+        Expression[] keys = new Expression[size];
+        Expression[] values = new Expression[size];
+
+        for (int i = 0; i < size; i++) {
+            PairNode entry = entries.get(i);
+            keys[i] = visit(entry.getKey(), context);
+            values[i] = visit(entry.getValue(), context);
+        }
+
+        // Entries can reference the ones before them, so they're put into a scope as they're evaluated.
+        return (evaluator, scope) -> {
+            Scope bodyScope = new Scope(scope);
+            Map<String, Object> map = new LinkedHashMap<>();
+
+            for (int i = 0; i < size; i++) {
+                String key = (String) keys[i].evaluate(evaluator, bodyScope);
+
+                map.put(key, evaluator.putPair(entries.get(i), bodyScope, key, values[i].evaluate(evaluator, bodyScope)));
+            }
+
+            return map;
+        };
+    }
+
+    @Override
+    public Expression visitReference(ReferenceNode node, Void context) {
+        List<Node> arguments = node.getArguments();
+
+        if (arguments.isEmpty()) {
+            return (evaluator, scope) -> null;
+        }
+
+        Expression first = visit(arguments.get(0), context);
+        boolean named = arguments.get(0) instanceof ValueNode;
+        List<Expression> rest = compileAll(arguments.subList(1, arguments.size()));
+        ResolutionCache resolution = new ResolutionCache();
+
+        return (evaluator, scope) -> evaluator.resolveReference(node, scope, first, named, rest, resolution);
+    }
+
+    @Override
+    public Expression visitValue(ValueNode node, Void context) {
+        return new Constant(node.getValue());
+    }
+
+    /**
+     * Expression that always evaluates to the same value.
+     */
+    static class Constant implements Expression {
+
+        private final Object value;
+
+        public Constant(Object value) {
+            this.value = value;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object evaluate(NodeEvaluator evaluator, Scope scope) {
+            return value;
+        }
+
+    }
+
+}
@@ -32,7 +32,22 @@ public class FileScope extends Scope {
     private final String file;
 
     public FileScope(RootScope parent, String file) {
-        super(parent);
+        this(parent, file, null);
+    }
+
+    /**
+     * @param values Nullable.
+     */
+    public FileScope(RootScope parent, String file, Map<String, Object> values) {
+        this(parent, file, values, values == null);
+    }
+
+    /**
+     * @param values Nullable.
+     * @param versioned {@code true} if all writes to the given {@code values} go through this scope.
+     */
+    protected FileScope(RootScope parent, String file, Map<String, Object> values, boolean versioned) {
+        super(parent, values, versioned);
 
         this.file = Preconditions.checkNotNull(file);
     }
@@ -98,7 +113,10 @@ public class FileScope extends Scope {
             getRootScope().getResources().put(key, (Resource) value);
         }
 
-        return super.put(key, value);
+        Object oldValue = super.put(key, value);
+
+        wake(key, value);
+        return oldValue;
     }
 
     @Override
@@ -112,6 +130,16 @@ public class FileScope extends Scope {
         }
 
         super.putAll(other);
+        other.forEach(this::wake);
+    }
+
+    // Re-queues the deferred evaluations that were waiting for the resource.
+    private void wake(String key, Object value) {
+        RootScope root = getRootScope();
+
+        if (root != null && value instanceof Resource) {
+            root.getWaitList().wake(key);
+        }
     }
 
     @Override
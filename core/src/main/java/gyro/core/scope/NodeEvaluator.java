@@ -18,21 +18,26 @@ package gyro.core.scope;
 
 import java.beans.BeanInfo;
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.DoubleBinaryOperator;
 import java.util.function.LongBinaryOperator;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -44,6 +49,7 @@ import com.google.common.collect.ImmutableMap;
 import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.TypeDefinition;
 import gyro.core.GyroException;
+import gyro.core.ParallelTasks;
 import gyro.core.Reflections;
 import gyro.core.directive.DirectiveProcessor;
 import gyro.core.directive.DirectiveSettings;
@@ -75,14 +81,32 @@ import gyro.lang.ast.value.MapNode;
 import gyro.lang.ast.value.ReferenceNode;
 import gyro.lang.ast.value.ValueNode;
 import gyro.lang.filter.Filter;
+import gyro.util.Bug;
 import gyro.util.ImmutableCollectors;
 import org.apache.commons.lang3.math.NumberUtils;
 
 public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeException> {
 
-    private Map<String, Set<Node>> typeNodes;
+    private Map<Node, Set<String>> nodeTypes;
+    private Map<String, Integer> pendingTypes;
+    private volatile boolean parallel;
+    private final ReentrantLock directiveLock = new ReentrantLock();
+    private final AtomicInteger concurrentBodies = new AtomicInteger();
     private List<Node> body;
 
+    // Threads that evaluate concurrently can't park items in the wait list or wait on it.
+    private static final ThreadLocal<Boolean> CONCURRENT_BODY = ThreadLocal.withInitial(() -> false);
+
+    // Getters by the Gyro key, including the missing ones, for each class. Unlike a cache with weak keys, ClassValue
+    // doesn't keep the classes alive through the method handles that reference them.
+    private static final ClassValue<Map<String, Optional<MethodHandle>>> GETTERS = new ClassValue<Map<String, Optional<MethodHandle>>>() {
+
+        @Override
+        protected Map<String, Optional<MethodHandle>> computeValue(Class<?> aClass) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     private static final LoadingCache<Class<? extends DirectiveProcessor>, Class<? extends Scope>> DIRECTIVE_PROCESSOR_SCOPE_CLASSES = CacheBuilder
         .newBuilder()
         .build(new CacheLoader<Class<? extends DirectiveProcessor>, Class<? extends Scope>>() {
@@ -95,7 +119,7 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
             }
         });
 
-    private static final Map<String, BiFunction<Object, Object, Object>> BINARY_FUNCTIONS = ImmutableMap.<String, BiFunction<Object, Object, Object>>builder()
+    static final Map<String, BiFunction<Object, Object, Object>> BINARY_FUNCTIONS = ImmutableMap.<String, BiFunction<Object, Object, Object>>builder()
         .put("*", (l, r) -> doArithmetic(l, r, (ld, rd) -> ld * rd, (ll, rl) -> ll * rl))
         .put("/", (l, r) -> doArithmetic(l, r, (ld, rd) -> ld / rd, (ll, rl) -> ll / rl))
         .put("%", (l, r) -> doArithmetic(l, r, (ld, rd) -> ld % rd, (ll, rl) -> ll % rl))
@@ -276,35 +300,66 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
         }
 
         Class<?> aClass = object.getClass();
+        Map<String, Optional<MethodHandle>> getters = GETTERS.get(aClass);
+        Optional<MethodHandle> getter = getters.get(key);
+
+        if (getter == null) {
+            getter = getters.computeIfAbsent(key, k -> findGetter(aClass, k));
+        }
+
+        if (!getter.isPresent()) {
+            if (object instanceof Diffable) {
+                throw new GyroException(node, String.format(
+                    "Can't find the @|bold %s|@ field or property in the @|bold %s|@ type!",
+                    key,
+                    DiffableType.getInstance((Diffable) object).getName()));
+
+            } else {
+                throw new GyroException(node, String.format(
+                    "Can't find the @|bold %s|@ property in the @|bold %s|@ class!",
+                    key,
+                    aClass.getName()));
+            }
+        }
+
+        try {
+            return (Object) getter.get().invokeExact(object);
+
+        } catch (RuntimeException error) {
+            throw error;
+
+        } catch (Throwable error) {
+            throw new GyroException(error);
+        }
+    }
+
+    private static Optional<MethodHandle> findGetter(Class<?> aClass, String key) {
         BeanInfo info = Reflections.getBeanInfo(aClass);
         String methodName = CaseFormat.LOWER_HYPHEN.to(CaseFormat.LOWER_CAMEL, key);
 
-        Method method = Stream.of(info.getPropertyDescriptors())
+        return Stream.of(info.getPropertyDescriptors())
             .filter(p -> p.getName().equals(methodName))
             .map(PropertyDescriptor::getReadMethod)
             .filter(Objects::nonNull)
             .findFirst()
+            .map(Optional::of)
             .orElseGet(() -> Stream.of(aClass.getMethods())
                 .filter(m -> m.getName().equals(methodName))
                 .filter(m -> m.getParameterCount() == 0)
                 .filter(m -> !m.getReturnType().equals(void.class))
-                .findFirst()
-                .orElseThrow(() -> {
-                    if (object instanceof Diffable) {
-                        return new GyroException(node, String.format(
-                            "Can't find the @|bold %s|@ field or property in the @|bold %s|@ type!",
-                            key,
-                            DiffableType.getInstance((Diffable) object).getName()));
-
-                    } else {
-                        return new GyroException(node, String.format(
-                            "Can't find the @|bold %s|@ property in the @|bold %s|@ class!",
-                            key,
-                            aClass.getName()));
-                    }
-                }));
+                .findFirst())
+            .map(m -> {
+                try {
+                    m.setAccessible(true);
 
-        return Reflections.invoke(method, object);
+                    return MethodHandles.lookup()
+                        .unreflect(m)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+
+                } catch (IllegalAccessException error) {
+                    throw new Bug(error);
+                }
+            });
     }
 
     public List<Node> getBody() {
@@ -312,7 +367,8 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
     }
 
     public void evaluate(RootScope root, List<Node> body) {
-        this.typeNodes = new HashMap<>();
+        this.nodeTypes = new ConcurrentHashMap<>();
+        this.pendingTypes = new ConcurrentHashMap<>();
         this.body = body;
 
         body.stream()
@@ -322,12 +378,158 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
             .flatMap(List::stream)
             .forEach(item -> addTypeNode(item, item));
 
-        evaluateBody(body, root);
+        EvaluationSettings settings = root.getSettings(EvaluationSettings.class);
+
+        if (settings.isGraph()) {
+            evaluateGraph(root, body);
+
+        } else if (settings.isParallel()) {
+            evaluateParallel(root, body);
+
+        } else {
+            evaluateBody(body, root);
+        }
+    }
+
+    private void evaluateParallel(RootScope root, List<Node> body) {
+        List<FileNode> files = new ArrayList<>();
+        Set<Node> deferred = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (Node node : body) {
+            if (node instanceof FileNode) {
+                files.add((FileNode) node);
+
+            } else {
+                try {
+                    visit(node, root);
+
+                } catch (Defer error) {
+                    deferred.add(node);
+                }
+            }
+        }
+
+        // File scopes are created upfront so that their order doesn't depend on the evaluation order.
+        List<FileScope> fileScopes = root.getFileScopes();
+
+        for (FileNode file : files) {
+            String name = file.getFile();
+
+            if (fileScopes.stream().noneMatch(f -> f.getFile().equals(name))) {
+                fileScopes.add(new FileScope(root, name, Collections.synchronizedMap(new LinkedHashMap<>()), true));
+            }
+        }
+
+        DeferWaitList waitList = root.getWaitList();
+        List<Supplier<Boolean>> evaluations = new ArrayList<>();
+
+        for (FileNode file : files) {
+            evaluations.add(() -> {
+                try {
+                    visit(file, root);
+                    return true;
+
+                } catch (Defer error) {
+                    return false;
+
+                } finally {
+                    waitList.finish();
+                }
+            });
+        }
+
+        parallel = true;
+
+        waitList.start(files.size());
+
+        try {
+            List<Boolean> evaluated = ParallelTasks.supplyAll(evaluations);
+
+            for (int i = 0, size = files.size(); i < size; i++) {
+                if (!evaluated.get(i)) {
+                    deferred.add(files.get(i));
+                }
+            }
+
+        } finally {
+            parallel = false;
+        }
+
+        // Registration order depends on the timing of the evaluations, so make it follow the files instead.
+        Map<String, Resource> resources = root.getResources();
+
+        synchronized (resources) {
+            resources.clear();
+
+            for (FileScope fileScope : fileScopes) {
+                fileScope.forEach((key, value) -> {
+                    if (value instanceof Resource) {
+                        resources.put(key, (Resource) value);
+                    }
+                });
+            }
+        }
+
+        // Files that waited on resources that were never created are retried sequentially so that the errors are
+        // the same.
+        Defer.execute(
+            body.stream().filter(deferred::contains).collect(Collectors.toList()),
+            n -> visit(n, root),
+            waitList);
+    }
+
+    private void evaluateGraph(RootScope root, List<Node> body) {
+        ReferenceSettings referenceSettings = root.getSettings(ReferenceSettings.class);
+        DependencyGraph graph = new DependencyGraph(n -> referenceSettings.getResolver(n) != null);
+        Map<Node, Scope> scopes = new IdentityHashMap<>();
+
+        for (Node node : body) {
+            if (node instanceof FileNode) {
+                FileScope fileScope = getFileScope(root, ((FileNode) node).getFile());
+
+                for (Node item : ((FileNode) node).getBody()) {
+                    graph.add(fileScope.getFile(), item);
+                    scopes.put(item, fileScope);
+                }
+
+            } else {
+                graph.add(root.getFile(), node);
+                scopes.put(node, root);
+            }
+        }
+
+        List<Defer> errors = new ArrayList<>(graph.getCircularErrors());
+        List<Node> deferred = new ArrayList<>();
+
+        for (Node node : graph.sort()) {
+            try {
+                visit(node, scopes.get(node));
+
+            } catch (Defer error) {
+                deferred.add(node);
+            }
+        }
+
+        // References that couldn't be analyzed statically still need to be retried.
+        try {
+            Defer.execute(deferred, n -> visit(n, scopes.get(n)), root.getWaitList());
+
+        } catch (Defer error) {
+            errors.add(error);
+        }
+
+        if (!errors.isEmpty()) {
+            throw new ExecuteDefer(errors);
+        }
     }
 
     public void addTypeNode(Node top, Node node) {
         if (node instanceof ResourceNode) {
-            typeNodes.computeIfAbsent(((ResourceNode) node).getType(), k -> new HashSet<>()).add(top);
+            String type = ((ResourceNode) node).getType();
+
+            if (nodeTypes.computeIfAbsent(top, k -> ConcurrentHashMap.newKeySet()).add(type)) {
+                pendingTypes.merge(type, 1, Integer::sum);
+            }
         }
 
         if (node instanceof BlockNode) {
@@ -338,23 +540,101 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
     }
 
     public void evaluateBody(List<Node> body, Scope scope) {
-        Defer.execute(body, i -> visit(i, scope));
+        RootScope root = scope.getRootScope();
+
+        // Parallel evaluations wait on missing resources instead.
+        Defer.execute(
+            body,
+            i -> visit(i, scope),
+            root != null && !parallel && !CONCURRENT_BODY.get() ? root.getWaitList() : null);
     }
 
-    private void removeTypeNode(Node node) {
-        if (typeNodes != null) {
-            for (Iterator<Set<Node>> i = typeNodes.values().iterator(); i.hasNext(); ) {
-                Set<Node> nodes = i.next();
+    /**
+     * Evaluates the given {@code body} in each of the given {@code scopes} concurrently.
+     *
+     * <p>Each evaluation retries its own deferred items, and the ones that still can't be evaluated are thrown
+     * together, in the order of the scopes, once all evaluations finish.</p>
+     */
+    public void evaluateBodies(List<Node> body, List<? extends Scope> scopes) {
+        List<Supplier<Defer>> evaluations = new ArrayList<>();
+
+        for (Scope scope : scopes) {
+            evaluations.add(concurrently(() -> {
+                try {
+                    Defer.execute(body, i -> visit(i, scope));
+                    return null;
 
-                nodes.remove(node);
+                } catch (Defer error) {
+                    return error;
+                }
+            }));
+        }
 
-                if (nodes.isEmpty()) {
-                    i.remove();
+        int holds = directiveLock.getHoldCount();
+
+        // The enclosing directive may hold the lock that the directives in the bodies need.
+        for (int i = 0; i < holds; i++) {
+            directiveLock.unlock();
+        }
+
+        concurrentBodies.incrementAndGet();
+
+        try {
+            List<Defer> errors = ParallelTasks.supplyAll(evaluations)
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+            if (!errors.isEmpty()) {
+                throw new ExecuteDefer(errors);
+            }
+
+        } finally {
+            concurrentBodies.decrementAndGet();
+
+            for (int i = 0; i < holds; i++) {
+                directiveLock.lock();
+            }
+        }
+    }
+
+    /**
+     * Returns a task that runs the given {@code task} as one of several that may evaluate nodes at the same time,
+     * such as when the resources are reevaluated during a parallel diff or execute.
+     *
+     * <p>Directives are then processed one at a time, and deferred items aren't parked in the shared wait list.</p>
+     */
+    public static <T> Supplier<T> concurrently(Supplier<T> task) {
+        return () -> {
+            boolean concurrent = CONCURRENT_BODY.get();
+
+            CONCURRENT_BODY.set(true);
+
+            try {
+                return task.get();
+
+            } finally {
+                if (!concurrent) {
+                    CONCURRENT_BODY.remove();
                 }
             }
+        };
+    }
+
+    void removeTypeNode(Node node) {
+        if (nodeTypes != null) {
+            Set<String> types = nodeTypes.remove(node);
+
+            if (types != null) {
+                types.forEach(t -> pendingTypes.computeIfPresent(t, (k, count) -> count > 1 ? count - 1 : null));
+            }
         }
     }
 
+    boolean isTypePending(String type) {
+        return pendingTypes != null && pendingTypes.getOrDefault(type, 0) > 0;
+    }
+
     @Override
     public Object visitDirective(DirectiveNode node, Scope scope) {
         String name = node.getName();
@@ -380,7 +660,28 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
                     scope.getClass().getName()));
             }
 
-            processor.process(scope, node);
+            EvaluationMemo memo = findMemo(scope);
+
+            // Directives can do anything, so their results are never reused.
+            if (memo != null) {
+                memo.setUncacheable();
+            }
+
+            boolean serial = parallel || concurrentBodies.get() > 0 || CONCURRENT_BODY.get();
+
+            // Directives can change the shared settings, so process them one at a time in parallel evaluations.
+            if (serial) {
+                directiveLock.lock();
+            }
+
+            try {
+                processor.process(scope, node);
+
+            } finally {
+                if (serial) {
+                    directiveLock.unlock();
+                }
+            }
 
         } catch (Exception error) {
             throw new GyroException(
@@ -398,7 +699,11 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
         String key = (String) visit(node.getKey(), scope);
         Node value = node.getValue();
 
-        scope.put(key, visit(value, scope));
+        return putPair(node, scope, key, ExpressionCompiler.compile(value).evaluate(this, scope));
+    }
+
+    Object putPair(PairNode node, Scope scope, String key, Object value) {
+        scope.put(key, value);
         scope.putLocation(key, node);
 
         removeTypeNode(node);
@@ -407,9 +712,13 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
 
     @Override
     public Object visitFile(FileNode node, Scope scope) {
-        RootScope rootScope = scope.getRootScope();
+        evaluateBody(node.getBody(), getFileScope(scope.getRootScope(), node.getFile()));
+        removeTypeNode(node);
+        return null;
+    }
+
+    private FileScope getFileScope(RootScope rootScope, String file) {
         List<FileScope> fileScopes = rootScope.getFileScopes();
-        String file = node.getFile();
 
         FileScope fileScope = fileScopes.stream()
             .filter(f -> f.getFile().equals(file))
@@ -421,21 +730,93 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
             fileScopes.add(fileScope);
         }
 
-        evaluateBody(node.getBody(), fileScope);
-        removeTypeNode(node);
-        return null;
+        return fileScope;
     }
 
-    public void evaluateDiffable(BlockNode node, Scope scope) {
+    /**
+     * Evaluates the body of the given diffable {@code node} within the given {@code scope}.
+     *
+     * <p>Items directly within a resource are memoized along with the resources that they read, so that pairs can
+     * be reused as is when the resource is reevaluated during diff and execute.</p>
+     *
+     * @return {@code true} if any of the values may be different from the previous evaluation.
+     */
+    public boolean evaluateDiffable(BlockNode node, Scope scope) {
+        boolean changed = false;
+
         for (Node item : node.getBody()) {
             if (!(item instanceof DirectiveNode)) {
-                visit(item, scope);
+                changed |= evaluateDiffableItem(item, scope);
             }
         }
 
         for (Node item : node.getBody()) {
             if (item instanceof DirectiveNode) {
-                visit(item, scope);
+                changed |= evaluateDiffableItem(item, scope);
+            }
+        }
+
+        return changed;
+    }
+
+    private boolean evaluateDiffableItem(Node item, Scope scope) {
+        if (!(scope instanceof DiffableScope)
+            || !(((DiffableScope) scope).getBlock() instanceof ResourceNode)
+            || findMemo(scope) != null) {
+
+            visit(item, scope);
+            return true;
+        }
+
+        DiffableScope diffableScope = (DiffableScope) scope;
+        Map<Node, EvaluationMemo> memos = diffableScope.getMemos();
+        EvaluationMemo previous = memos.get(item);
+        boolean valid = previous != null && previous.isValid();
+
+        if (valid && item instanceof PairNode) {
+            PairNode pair = (PairNode) item;
+
+            putPair(pair, scope, (String) visit(pair.getKey(), scope), previous.getValue());
+            return false;
+        }
+
+        // Other items, such as subresources, are always evaluated again since they don't just put a value.
+        EvaluationMemo memo = new EvaluationMemo();
+
+        diffableScope.setMemo(memo);
+
+        try {
+            memo.setValue(visit(item, scope));
+
+        } finally {
+            diffableScope.setMemo(null);
+        }
+
+        memos.put(item, memo);
+        return !valid;
+    }
+
+    private static EvaluationMemo findMemo(Scope scope) {
+        for (Scope s = scope; s != null; s = s.getParent()) {
+            if (s instanceof DiffableScope) {
+                EvaluationMemo memo = ((DiffableScope) s).getMemo();
+
+                if (memo != null) {
+                    return memo;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // Records that the item being evaluated within the given scope read from the given diffables.
+    static void recordRead(Scope scope, Object value) {
+        if (value instanceof Diffable || value instanceof Collection) {
+            EvaluationMemo memo = findMemo(scope);
+
+            if (memo != null) {
+                memo.read(value);
             }
         }
     }
@@ -465,15 +846,19 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
         String type = node.getType();
         String name = (String) visit(node.getName(), scope);
         DiffableScope bodyScope = new DiffableScope(scope, node);
+        RootScope root = scope.getRootScope();
+        String fullName = type + "::" + name;
+        boolean changed;
+
+        forkMemos(root, fullName, bodyScope);
 
         try {
-            evaluateDiffable(node, bodyScope);
+            changed = evaluateDiffable(node, bodyScope);
 
         } catch (Defer error) {
             throw new CreateDefer(error, type, name);
         }
 
-        RootScope root = scope.getRootScope();
         Object value = root.get(type);
         Resource resource = null;
 
@@ -493,7 +878,6 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
             }
 
             FileScope file = scope.getFileScope();
-            String fullName = type + "::" + name;
 
             if (file.containsKey(fullName)) {
                 Node location = file.getLocation(fullName);
@@ -512,7 +896,7 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
             bodyScope = new DiffableScope(bodyScope);
 
             try {
-                evaluateDiffable(node, bodyScope);
+                changed |= evaluateDiffable(node, bodyScope);
 
             } catch (Defer error) {
                 throw new CreateDefer(error, type, name);
@@ -525,6 +909,17 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
                 .ifPresent(r -> copy(r, finalResource));
 
             bodyScope.process(resource);
+
+            RootScope base = root.getBase();
+
+            if (base != null && !changed) {
+                Resource baseResource = base.getResources().get(fullName);
+
+                if (baseResource != null && isSame(baseResource, resource)) {
+                    root.setUnchangedFromBase(fullName);
+                }
+            }
+
             file.put(fullName, resource);
             file.putLocation(fullName, node);
 
@@ -543,6 +938,66 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
         return resource;
     }
 
+    // Seeds the memos of a resource in a fork with the ones that its base recorded.
+    private void forkMemos(RootScope root, String fullName, DiffableScope bodyScope) {
+        RootScope base = root.getBase();
+
+        if (base == null) {
+            return;
+        }
+
+        Resource baseResource = base.getResources().get(fullName);
+
+        if (baseResource == null) {
+            return;
+        }
+
+        Map<Node, EvaluationMemo> memos = bodyScope.getMemos();
+
+        DiffableInternals.getScope(baseResource).getMemos().forEach((item, memo) -> {
+            EvaluationMemo forked = memo.fork(bodyScope);
+
+            if (forked != null) {
+                memos.put(item, forked);
+            }
+        });
+    }
+
+    // Checks if the others would read the same values from the given resources, including their subresources.
+    private boolean isSame(Diffable x, Diffable y) {
+        if (x.getClass() != y.getClass()) {
+            return false;
+        }
+
+        for (DiffableField field : DiffableType.getInstance(x).getFields()) {
+            Object xValue = field.getValue(x);
+            Object yValue = field.getValue(y);
+
+            if (xValue == null || yValue == null || !field.shouldBeDiffed()) {
+                if (!Objects.equals(xValue, yValue)) {
+                    return false;
+                }
+
+                continue;
+            }
+
+            List<Diffable> xs = stream(xValue).collect(Collectors.toList());
+            List<Diffable> ys = stream(yValue).collect(Collectors.toList());
+
+            if (xs.size() != ys.size()) {
+                return false;
+            }
+
+            for (int i = 0, size = xs.size(); i < size; i++) {
+                if (!isSame(xs.get(i), ys.get(i))) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
     public void copy(Diffable currentResource, Diffable pendingResource) {
         if (currentResource == null) {
             return;
@@ -586,183 +1041,160 @@ public class NodeEvaluator implements NodeVisitor<Scope, Object, RuntimeExceptio
 
     @Override
     public Object visitBinary(BinaryNode node, Scope scope) {
-        String operator = node.getOperator();
-        BiFunction<Object, Object, Object> function = BINARY_FUNCTIONS.get(operator);
-
-        if (function == null) {
-            throw new GyroException(String.format(
-                "@|bold %s|@ is not a valid binary operator!",
-                operator));
-        }
-
-        removeTypeNode(node);
-
-        return function.apply(
-            visit(node.getLeft(), scope),
-            visit(node.getRight(), scope));
+        return evaluateExpression(node, scope);
     }
 
     @Override
     public Object visitIndexed(IndexedNode node, Scope scope) {
-        Object value = visit(node.getValue(), scope);
-
-        if (value == null) {
-            removeTypeNode(node);
-            return null;
-        }
-
-        for (Node indexNode : node.getIndexes()) {
-            Object index = visit(indexNode, scope);
-
-            if (index == null) {
-                removeTypeNode(node);
-                return null;
-            }
+        return evaluateExpression(node, scope);
+    }
 
-            value = getValue(node, value, index.toString());
+    @Override
+    public Object visitInterpolatedString(InterpolatedStringNode node, Scope scope) {
+        return evaluateExpression(node, scope);
+    }
 
-            if (value == null) {
-                removeTypeNode(node);
-                return null;
-            }
-        }
+    private Object evaluateExpression(Node node, Scope scope) {
+        Object value = ExpressionCompiler.compile(node).evaluate(this, scope);
 
         removeTypeNode(node);
         return value;
     }
 
     @Override
-    public Object visitInterpolatedString(InterpolatedStringNode node, Scope scope) {
-        removeTypeNode(node);
+    public Object visitList(ListNode node, Scope scope) {
+        return evaluateExpression(node, scope);
+    }
 
-        return node.getItems()
-            .stream()
-            .map(i -> visit(i, scope))
-            .filter(Objects::nonNull)
-            .map(Object::toString)
-            .collect(Collectors.joining());
+    @Override
+    public Object visitMap(MapNode node, Scope scope) {
+        return evaluateExpression(node, scope);
     }
 
     @Override
-    public Object visitList(ListNode node, Scope scope) {
-        List<Object> list = new ArrayList<>();
+    public Object visitReference(ReferenceNode node, Scope scope) {
+        return evaluateExpression(node, scope);
+    }
 
-        for (Node item : node.getItems()) {
-            list.add(visit(item, scope));
-        }
+    Object resolveReference(
+        ReferenceNode node,
+        Scope scope,
+        Expression first,
+        boolean named,
+        List<Expression> rest,
+        ResolutionCache resolution) {
 
-        removeTypeNode(node);
-        return list;
-    }
+        // Only resolve the first argument to decide if it is a resolver or not
+        // For a resolver, then the respective resolver processor would handle evaluating the rest of the arguments
+        Object value = first.evaluate(this, scope);
 
-    @Override
-    public Object visitMap(MapNode node, Scope scope) {
-        Scope bodyScope = new Scope(scope);
-        Map<String, Object> map = new LinkedHashMap<>();
+        if (value != null && named) {
+            RootScope root = scope.getRootScope();
+            String referenceName = (String) value;
+            ReferenceResolver resolver = root.getSettings(ReferenceSettings.class).getResolver(referenceName);
 
-        for (PairNode entry : node.getEntries()) {
-            map.put((String) visit(entry.getKey(), bodyScope), visit(entry, bodyScope));
-        }
+            if (resolver != null) {
+                EvaluationMemo memo = findMemo(scope);
 
-        removeTypeNode(node);
-        return map;
-    }
+                if (memo != null) {
+                    memo.setUncacheable();
+                }
 
-    @Override
-    public Object visitReference(ReferenceNode node, Scope scope) {
-        Object value = null;
+                try {
+                    removeTypeNode(node);
+                    value = resolver.resolve(node, scope);
 
-        if (!node.getArguments().isEmpty()) {
-            List<Node> nodes = new ArrayList<>(node.getArguments());
-
-            // Get the resolved value of the first argument and remove it from the argument list
-            // Only resolve the first argument to decide if it is a resolver or not
-            // For a resolver, then the respective resolver processor would handle evaluating the rest of the arguments
-            value = visit(nodes.remove(0), scope);
-
-            if (value != null && node.getArguments().get(0) instanceof ValueNode) {
-                RootScope root = scope.getRootScope();
-                String referenceName = (String) value;
-                ReferenceResolver resolver = root.getSettings(ReferenceSettings.class).getResolver(referenceName);
-
-                if (resolver != null) {
-                    try {
-                        removeTypeNode(node);
-                        value = resolver.resolve(node, scope);
-
-                    } catch (Exception error) {
-                        throw new GyroException(
-                            node,
-                            String.format("Can't resolve @|bold %s|@ reference!", referenceName),
-                            error);
-                    }
+                } catch (Exception error) {
+                    throw new GyroException(
+                        node,
+                        String.format("Can't resolve @|bold %s|@ reference!", referenceName),
+                        error);
+                }
 
-                } else if (referenceName.contains("::")) {
-                    List<Object> objects = new ArrayList<>();
+            } else if (referenceName.contains("::")) {
+                List<Object> objects = new ArrayList<>();
 
-                    // Resolve the rest of the arguments
-                    List<Object> arguments = nodes.stream().map(o -> visit(o, scope)).collect(Collectors.toList());
+                // Resolve the rest of the arguments
+                List<Object> arguments = rest.stream().map(e -> e.evaluate(this, scope)).collect(Collectors.toList());
 
-                    if (arguments.size() > 1 && arguments.contains("*")) {
-                        throw new GyroException("No other argument can be used if @|bold *|@ is used!");
-                    }
+                if (arguments.size() > 1 && arguments.contains("*")) {
+                    throw new GyroException("No other argument can be used if @|bold *|@ is used!");
+                }
 
-                    // Remove duplicate arguments
-                    Set<String> argumentSet = arguments.stream().map(o -> (String) o).collect(Collectors.toSet());
+                // Remove duplicate arguments
+                Set<String> argumentSet = arguments.stream().map(o -> (String) o).collect(Collectors.toSet());
 
-                    for (Object argument : argumentSet) {
-                        Object resourceValue = resourceResolver((String) argument, referenceName, node, root);
+                for (Object argument : argumentSet) {
+                    Object resourceValue = resourceResolver((String) argument, referenceName, node, root);
 
-                        if (resourceValue != null) {
-                            if (resourceValue instanceof List) {
-                                objects.addAll((List<Object>) resourceValue);
-                            } else {
-                                objects.add(resourceValue);
-                            }
+                    if (resourceValue != null) {
+                        if (resourceValue instanceof List) {
+                            objects.addAll((List<Object>) resourceValue);
+                        } else {
+                            objects.add(resourceValue);
                         }
                     }
+                }
 
-                    // Set value to single resource object only if one argument passed which does not contain '*'
-                    if (!objects.isEmpty() && arguments.size() == 1 && !((String) arguments.get(0)).contains("*")) {
-                        value = objects.get(0);
-                    } else {
-                        value = objects;
-                    }
+                // Set value to single resource object only if one argument passed which does not contain '*'
+                if (!objects.isEmpty() && arguments.size() == 1 && !((String) arguments.get(0)).contains("*")) {
+                    value = objects.get(0);
                 } else {
-                    value = scope.find(node, referenceName);
+                    value = objects;
+                }
+            } else {
+                value = resolution.find(scope, node, referenceName);
+                EvaluationMemo memo = findMemo(scope);
+
+                if (memo != null) {
+                    memo.readVariable(referenceName, value);
                 }
             }
         }
 
-        removeTypeNode(node);
-        if (value == null) {
-            return null;
+        recordRead(scope, value);
+        return resolveFilters(node, scope, value);
+    }
+
+    // Waits for another file to create the resource, releasing the directive lock so that the others can progress.
+    private Resource awaitResource(RootScope root, String key) {
+        int holds = directiveLock.getHoldCount();
+
+        for (int i = 0; i < holds; i++) {
+            directiveLock.unlock();
         }
 
-        return resolveFilters(node, scope, value);
+        try {
+            return root.getWaitList().await(key, () -> root.findResource(key));
+
+        } finally {
+            for (int i = 0; i < holds; i++) {
+                directiveLock.lock();
+            }
+        }
     }
 
     private Object resourceResolver(String resourceName, String referenceName, ReferenceNode node, RootScope root) {
         Object value = null;
 
         if (resourceName.endsWith("*")) {
-            if (typeNodes != null && typeNodes.containsKey(referenceName)) {
+            // Registration order depends on the timing of parallel evaluations, so wildcards wait for the sequential
+            // pass that runs after it's made to follow the files.
+            if (parallel || isTypePending(referenceName)) {
                 throw new WildcardDefer(node, referenceName);
             }
 
-            Stream<Resource> s = root.findSortedResources()
-                .stream()
-                .filter(r -> referenceName.equals(DiffableType.getInstance(r.getClass()).getName()));
-
-            if (!resourceName.equals("*")) {
-                String prefix = resourceName.substring(0, resourceName.length() - 1);
-                s = s.filter(r -> DiffableInternals.getName(r).startsWith(prefix));
-            }
-
-            value = s.collect(Collectors.toList());
+            value = root.findResourcesByNamePrefix(
+                referenceName,
+                resourceName.substring(0, resourceName.length() - 1));
 
         } else {
-            Resource resource = root.findResource(referenceName + "::" + resourceName);
+            String key = referenceName + "::" + resourceName;
+            Resource resource = root.findResource(key);
+
+            if (resource == null && parallel && !CONCURRENT_BODY.get()) {
+                resource = awaitResource(root, key);
+            }
 
             if (resource == null) {
                 throw new FindDefer(node, referenceName, resourceName);
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gyro.core.preprocessor.Preprocessor;
+import gyro.lang.ast.Node;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.DirectiveSection;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.KeyBlockNode;
+import gyro.lang.ast.block.ResourceNode;
+
+/**
+ * Built-in optimizer that replaces {@code @if} directives whose conditions are constant with the body of the branch
+ * that would be taken.
+ *
+ * <p>Since {@code @if} evaluates the branch in the enclosing scope, this doesn't change the result. It applies to the
+ * bodies of files, resources, subresources and other directives, such as {@code @for} and virtual resource
+ * definitions, so that reevaluating a resource doesn't check the conditions again. Constant binary operations and
+ * interpolated strings are folded by {@link ExpressionCompiler} when the conditions are checked.</p>
+ */
+public class OptimizerPreprocessor extends Preprocessor {
+
+    @Override
+    public List<Node> preprocess(List<Node> nodes, RootScope scope) {
+        return optimize(nodes);
+    }
+
+    // Returns the same list if nothing changed so that the unchanged nodes keep their identities.
+    private List<Node> optimize(List<Node> nodes) {
+        List<Node> optimized = new ArrayList<>();
+        boolean changed = false;
+
+        for (Node node : nodes) {
+            if (node instanceof DirectiveNode && "if".equals(((DirectiveNode) node).getName())) {
+                List<Node> branch = findBranch((DirectiveNode) node);
+
+                if (branch != null) {
+                    optimized.addAll(optimize(branch));
+                    changed = true;
+                    continue;
+                }
+            }
+
+            Node optimizedNode = optimize(node);
+
+            if (optimizedNode != node) {
+                changed = true;
+            }
+
+            optimized.add(optimizedNode);
+        }
+
+        return changed ? optimized : nodes;
+    }
+
+    private Node optimize(Node node) {
+        if (node instanceof FileNode) {
+            FileNode file = (FileNode) node;
+            List<Node> body = optimize(file.getBody());
+
+            return body != file.getBody() ? new FileNode(file, body) : node;
+
+        } else if (node instanceof ResourceNode) {
+            ResourceNode resource = (ResourceNode) node;
+            List<Node> body = optimize(resource.getBody());
+
+            return body != resource.getBody() ? new ResourceNode(resource, body) : node;
+
+        } else if (node instanceof KeyBlockNode) {
+            KeyBlockNode keyBlock = (KeyBlockNode) node;
+            List<Node> body = optimize(keyBlock.getBody());
+
+            return body != keyBlock.getBody() ? new KeyBlockNode(keyBlock, body) : node;
+
+        } else if (node instanceof DirectiveNode) {
+            DirectiveNode directive = (DirectiveNode) node;
+            List<Node> body = optimize(directive.getBody());
+            List<DirectiveSection> sections = new ArrayList<>();
+            boolean changed = body != directive.getBody();
+
+            for (DirectiveSection section : directive.getSections()) {
+                List<Node> sectionBody = optimize(section.getBody());
+
+                if (sectionBody != section.getBody()) {
+                    sections.add(new DirectiveSection(section, sectionBody));
+                    changed = true;
+
+                } else {
+                    sections.add(section);
+                }
+            }
+
+            return changed ? new DirectiveNode(directive, body, sections) : node;
+
+        } else {
+            return node;
+        }
+    }
+
+    // Returns the body of the branch that's always taken, or null if that can't be determined statically.
+    private List<Node> findBranch(DirectiveNode node) {
+        Boolean condition = test(node.getArguments());
+
+        if (condition == null) {
+            return null;
+
+        } else if (condition) {
+            return node.getBody();
+        }
+
+        for (DirectiveSection section : node.getSections()) {
+            switch (section.getName()) {
+                case "elseif":
+                case "elsif":
+                case "elif":
+                    condition = test(section.getArguments());
+
+                    if (condition == null) {
+                        return null;
+
+                    } else if (condition) {
+                        return section.getBody();
+                    }
+
+                    break;
+
+                case "else":
+                    return section.getBody();
+
+                default:
+                    return null;
+            }
+        }
+
+        return new ArrayList<>();
+    }
+
+    // Returns null if the condition isn't a constant or is invalid so that the error is reported during evaluation.
+    private Boolean test(List<Node> arguments) {
+        if (arguments.size() != 1) {
+            return null;
+        }
+
+        Expression expression = ExpressionCompiler.compile(arguments.get(0));
+
+        return expression instanceof ExpressionCompiler.Constant
+            ? NodeEvaluator.test(((ExpressionCompiler.Constant) expression).getValue())
+            : null;
+    }
+
+}
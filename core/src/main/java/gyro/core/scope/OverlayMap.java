@@ -0,0 +1,100 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Iterators;
+
+/**
+ * Map that stores its own entries on top of a parent map that it reads through to instead of copying it.
+ *
+ * <p>Entries in the parent can be shadowed, but not removed.</p>
+ */
+class OverlayMap<K, V> extends AbstractMap<K, V> {
+
+    private final Map<K, V> parent;
+    private final Map<K, V> own = new LinkedHashMap<>();
+
+    /**
+     * @param parent Nonnull. If it's synchronized, it's locked while it's being iterated.
+     */
+    public OverlayMap(Map<K, V> parent) {
+        this.parent = Preconditions.checkNotNull(parent);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return own.containsKey(key) || parent.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        return own.containsKey(key) ? own.get(key) : parent.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V oldValue = get(key);
+
+        own.put(key, value);
+        return oldValue;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return own.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        own.clear();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                List<Entry<K, V>> parentEntries;
+
+                synchronized (parent) {
+                    parentEntries = new ArrayList<>(parent.entrySet());
+                }
+
+                return Iterators.unmodifiableIterator(Iterators.concat(
+                    own.entrySet().iterator(),
+                    Iterators.filter(parentEntries.iterator(), e -> !own.containsKey(e.getKey()))));
+            }
+
+            @Override
+            public int size() {
+                return Iterators.size(iterator());
+            }
+        };
+    }
+
+}
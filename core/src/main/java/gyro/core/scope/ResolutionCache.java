@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import gyro.core.resource.ObjectScope;
+import gyro.lang.ast.Node;
+
+/**
+ * Where a variable reference was found in the scope chain the last time that it was resolved, along with the
+ * versions of the scopes that were searched, so that resolving it again from the same scope can skip the lookups as
+ * long as none of those scopes changed in the meantime.
+ *
+ * <p>Follows the same rules as {@link Scope#find} and {@link DiffableScope#find}, and defers to them whenever the
+ * result can't be cached.</p>
+ */
+final class ResolutionCache {
+
+    private volatile Resolution last;
+
+    public Object find(Scope scope, Node node, String name) {
+        Resolution resolution = last;
+
+        if (resolution != null && resolution.isValid(scope, name)) {
+            return resolution.value.get();
+        }
+
+        // SELF comes from the settings instead of the values.
+        if ("SELF".equals(name)) {
+            return scope.find(node, name);
+        }
+
+        List<Integer> versions = new ArrayList<>();
+        boolean versioned = true;
+        boolean leading = true;
+        boolean found = false;
+        Object value = null;
+
+        // The versions of all the scopes in the chain are checked, since a scope can read through its parents.
+        for (Scope s = scope; s != null; s = s.getParent()) {
+            versioned &= s.isVersioned();
+            versions.add(s.getVersion());
+
+            if (leading) {
+
+                // The values of the diffables themselves aren't visible to their own references, but the ones
+                // further up are, such as for a map within a resource body.
+                if (s instanceof DiffableScope) {
+                    continue;
+                }
+
+                leading = false;
+
+                // Object scopes look up the keys in their objects first.
+                if (s instanceof ObjectScope) {
+                    return scope.find(node, name);
+                }
+            }
+
+            if (!found) {
+                value = s.get(name);
+                found = value != null || s.containsKey(name);
+            }
+        }
+
+        if (!found) {
+            return scope.find(node, name);
+        }
+
+        if (versioned) {
+            last = new Resolution(scope, name, versions, value);
+        }
+
+        return value;
+    }
+
+    // Only weakly references the scopes, since the nodes and their caches can outlive them.
+    private static class Resolution {
+
+        private final WeakReference<Scope> scope;
+        private final String name;
+        private final int[] versions;
+        private final WeakReference<Object> value;
+
+        public Resolution(Scope scope, String name, List<Integer> versions, Object value) {
+            this.scope = new WeakReference<>(scope);
+            this.name = name;
+            this.versions = versions.stream().mapToInt(Integer::intValue).toArray();
+            this.value = new WeakReference<>(value);
+        }
+
+        public boolean isValid(Scope scope, String name) {
+            if (this.scope.get() != scope || !this.name.equals(name)) {
+                return false;
+            }
+
+            int i = 0;
+            int length = versions.length;
+
+            for (Scope s = scope; s != null; s = s.getParent()) {
+                if (i == length || s.getVersion() != versions[i++]) {
+                    return false;
+                }
+            }
+
+            return i == length;
+        }
+
+    }
+
+}
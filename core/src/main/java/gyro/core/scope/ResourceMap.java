@@ -0,0 +1,344 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import gyro.core.resource.DiffableField;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.Resource;
+
+/**
+ * Resources by their keys, in registration order, along with indexes by their classes, ids and names so that finding
+ * them doesn't need to go through all the resources.
+ *
+ * <p>The ids are indexed per class the first time that the class is looked up by id, and then kept up to date as the
+ * resources are registered and removed. Ids can also change after a resource is registered, for example when it's
+ * created, so the resources that had no id and the ones whose {@link DiffableInternals#getVersion versions} changed
+ * are checked again, and the matches are always checked against the current ids.</p>
+ */
+final class ResourceMap extends AbstractMap<String, Resource> {
+
+    private final Map<String, Resource> resources = new LinkedHashMap<>();
+    private final Map<Class<?>, Map<String, Resource>> resourcesByClass = new HashMap<>();
+    private final Map<Class<?>, IdIndex> resourcesById = new HashMap<>();
+    private final Map<String, NavigableMap<String, String>> keysByName = new HashMap<>();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private long sequence;
+
+    @Override
+    public boolean containsKey(Object key) {
+        return resources.containsKey(key);
+    }
+
+    @Override
+    public Resource get(Object key) {
+        return resources.get(key);
+    }
+
+    @Override
+    public int size() {
+        return resources.size();
+    }
+
+    @Override
+    public Set<Entry<String, Resource>> entrySet() {
+        return Collections.unmodifiableSet(resources.entrySet());
+    }
+
+    @Override
+    public Resource put(String key, Resource resource) {
+        Resource oldResource = resources.put(key, resource);
+
+        if (oldResource != null) {
+            unindexName(key, oldResource);
+
+            if (oldResource.getClass() != resource.getClass()) {
+                unindex(key, oldResource);
+            }
+
+        } else {
+            sequences.put(key, sequence++);
+        }
+
+        String name = DiffableInternals.getName(resource);
+
+        if (name != null && resource.primaryKey().equals(key)) {
+            keysByName.computeIfAbsent(DiffableType.getInstance(resource.getClass()).getName(), k -> new TreeMap<>())
+                .put(name, key);
+        }
+
+        // Replacing keeps the position like the resources themselves.
+        for (Class<?> c = resource.getClass(); c != null && Resource.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            resourcesByClass.computeIfAbsent(c, k -> new LinkedHashMap<>()).put(key, resource);
+
+            IdIndex byId = resourcesById.get(c);
+
+            if (byId != null) {
+                byId.index(key, resource);
+            }
+        }
+
+        return oldResource;
+    }
+
+    @Override
+    public Resource remove(Object key) {
+        Resource oldResource = resources.remove(key);
+
+        if (oldResource != null) {
+            unindexName((String) key, oldResource);
+            unindex((String) key, oldResource);
+            sequences.remove(key);
+        }
+
+        return oldResource;
+    }
+
+    private void unindex(String key, Resource resource) {
+        for (Class<?> c = resource.getClass(); c != null && Resource.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            Map<String, Resource> byKey = resourcesByClass.get(c);
+
+            if (byKey != null) {
+                byKey.remove(key);
+            }
+
+            IdIndex byId = resourcesById.get(c);
+
+            if (byId != null) {
+                byId.unindex(key);
+            }
+        }
+    }
+
+    private void unindexName(String key, Resource resource) {
+        Map<String, String> byName = keysByName.get(DiffableType.getInstance(resource.getClass()).getName());
+
+        String name = DiffableInternals.getName(resource);
+
+        if (byName != null && name != null) {
+            byName.remove(name, key);
+        }
+    }
+
+    @Override
+    public void clear() {
+        resources.clear();
+        resourcesByClass.clear();
+        resourcesById.clear();
+        keysByName.clear();
+        sequences.clear();
+    }
+
+    /**
+     * Returns all the resources that are instances of the given {@code resourceClass}, in registration order.
+     */
+    public <T extends Resource> List<T> findByClass(Class<T> resourceClass) {
+        Map<String, Resource> byKey = resourcesByClass.get(resourceClass);
+        List<T> found = new ArrayList<>();
+
+        if (byKey != null) {
+            byKey.forEach((key, resource) -> {
+                if (resource.primaryKey().equals(key)) {
+                    found.add(resourceClass.cast(resource));
+                }
+            });
+        }
+
+        return found;
+    }
+
+    /**
+     * Returns the first resource that's an instance of the given {@code resourceClass} whose id, in the given
+     * {@code idField}, equals the given {@code id}.
+     */
+    public <T extends Resource> T findById(Class<T> resourceClass, DiffableField idField, Object id) {
+        IdIndex byId = resourcesById.get(resourceClass);
+
+        if (byId == null || byId.idField != idField) {
+            byId = new IdIndex(idField);
+
+            for (Map.Entry<String, Resource> entry : resourcesByClass.getOrDefault(
+                resourceClass,
+                Collections.emptyMap()).entrySet()) {
+
+                byId.index(entry.getKey(), entry.getValue());
+            }
+
+            resourcesById.put(resourceClass, byId);
+
+        } else {
+            byId.refresh();
+        }
+
+        Set<String> keys = byId.keysById.get(id);
+
+        if (keys == null) {
+            return null;
+        }
+
+        List<String> sortedKeys = new ArrayList<>(keys);
+        Resource found = null;
+
+        sortedKeys.sort(Comparator.comparing(sequences::get));
+
+        for (String key : sortedKeys) {
+            Resource resource = resources.get(key);
+
+            // Changed without a new version, so index it again under its current id.
+            if (!id.equals(idField.getValue(resource))) {
+                byId.index(key, resource);
+
+            } else if (found == null && resource.primaryKey().equals(key)) {
+                found = resource;
+            }
+        }
+
+        return resourceClass.cast(found);
+    }
+
+    /**
+     * Returns all the resources of the given {@code type} whose names start with the given {@code prefix}, in
+     * registration order.
+     */
+    public List<Resource> findByNamePrefix(String type, String prefix) {
+        NavigableMap<String, String> byName = keysByName.get(type);
+
+        if (byName == null) {
+            return new ArrayList<>();
+        }
+
+        List<String> keys = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : byName.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+
+            keys.add(entry.getValue());
+        }
+
+        keys.sort(Comparator.comparing(sequences::get));
+
+        List<Resource> found = new ArrayList<>();
+
+        for (String key : keys) {
+            Resource resource = resources.get(key);
+
+            if (resource != null && resource.primaryKey().equals(key)) {
+                found.add(resource);
+            }
+        }
+
+        return found;
+    }
+
+    // Keys of the resources of a class by their ids, along with what was indexed for each one.
+    private class IdIndex {
+
+        public final DiffableField idField;
+        public final Map<Object, Set<String>> keysById = new HashMap<>();
+
+        private final Map<String, Object> ids = new HashMap<>();
+        private final Map<String, Integer> versions = new HashMap<>();
+        private final Set<String> missingIds = new LinkedHashSet<>();
+        private long allVersions = DiffableInternals.getVersions();
+
+        public IdIndex(DiffableField idField) {
+            this.idField = idField;
+        }
+
+        public void index(String key, Resource resource) {
+            unindex(key);
+
+            Object id = idField.getValue(resource);
+
+            ids.put(key, id);
+            versions.put(key, DiffableInternals.getVersion(resource));
+
+            if (id != null) {
+                keysById.computeIfAbsent(id, k -> new LinkedHashSet<>()).add(key);
+
+            } else {
+                missingIds.add(key);
+            }
+        }
+
+        public void unindex(String key) {
+            if (!ids.containsKey(key)) {
+                return;
+            }
+
+            Object id = ids.remove(key);
+
+            versions.remove(key);
+            missingIds.remove(key);
+
+            if (id != null) {
+                Set<String> keys = keysById.get(id);
+
+                keys.remove(key);
+
+                if (keys.isEmpty()) {
+                    keysById.remove(id);
+                }
+            }
+        }
+
+        // Checks the resources whose ids may have changed since they were indexed.
+        public void refresh() {
+            for (String key : new ArrayList<>(missingIds)) {
+                Resource resource = resources.get(key);
+
+                if (idField.getValue(resource) != null) {
+                    index(key, resource);
+                }
+            }
+
+            long newAllVersions = DiffableInternals.getVersions();
+
+            if (allVersions == newAllVersions) {
+                return;
+            }
+
+            allVersions = newAllVersions;
+
+            for (Map.Entry<String, Integer> entry : new ArrayList<>(versions.entrySet())) {
+                String key = entry.getKey();
+                Resource resource = resources.get(key);
+
+                if (DiffableInternals.getVersion(resource) != entry.getValue()) {
+                    index(key, resource);
+                }
+            }
+        }
+
+    }
+
+}
@@ -16,10 +16,13 @@
 
 package gyro.core.scope;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -27,12 +30,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import com.google.common.base.Preconditions;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
 import com.psddev.dari.util.Converter;
 import gyro.core.FileBackend;
 import gyro.core.GyroCore;
@@ -40,6 +49,7 @@ import gyro.core.GyroException;
 import gyro.core.GyroInputStream;
 import gyro.core.GyroOutputStream;
 import gyro.core.LogDirectiveProcessor;
+import gyro.core.ParallelTasks;
 import gyro.core.PrintDirectiveProcessor;
 import gyro.core.RemoteStateBackend;
 import gyro.core.audit.AuditorDirectiveProcessor;
@@ -111,12 +121,22 @@ public class RootScope extends FileScope {
     private final RemoteStateBackend remoteStateBackend;
     private final RootScope current;
     private final Set<String> loadFiles;
-    private final Map<String, Resource> resources = new LinkedHashMap<>();
+    private final Map<String, Object> values;
+    private final RootScope overlaid;
+    private final ResourceMap resourceMap = new ResourceMap();
+    private final Map<String, Resource> resources = Collections.synchronizedMap(resourceMap);
     private final List<FileScope> fileScopes = new ArrayList<>();
+    private final Set<FileScope> pendingFileScopes = ConcurrentHashMap.newKeySet();
+    private final DeferWaitList waitList = new DeferWaitList();
     // Workflow related
     private final AtomicBoolean inWorkflow = new AtomicBoolean();
     private final Map<String, Resource> workflowRemovedResources = new HashMap<>();
     private final Map<String, Resource> workflowReplacedResources = new HashMap<>();
+    // Fork related
+    private RootScope base;
+    private final Map<String, ParsedFile> parsedFiles = new ConcurrentHashMap<>();
+    private final Set<String> unchangedFromBase = ConcurrentHashMap.newKeySet();
+    private Map<Class<? extends Settings>, Settings> loadedSettings = Collections.emptyMap();
 
     public RootScope(String file, FileBackend backend, RootScope current, Set<String> loadFiles) {
         this(file, backend, null, current, loadFiles);
@@ -138,7 +158,29 @@ public class RootScope extends FileScope {
         RootScope current,
         Set<String> loadFiles,
         Boolean inWorkflow) {
-        super(null, file);
+        this(
+            file,
+            backend,
+            remoteStateBackend,
+            current,
+            loadFiles,
+            inWorkflow,
+            Collections.synchronizedMap(new LinkedHashMap<>()));
+    }
+
+    // Values are synchronized so that files can be evaluated in parallel.
+    private RootScope(
+        String file,
+        FileBackend backend,
+        RemoteStateBackend remoteStateBackend,
+        RootScope current,
+        Set<String> loadFiles,
+        Boolean inWorkflow,
+        Map<String, Object> values) {
+        super(null, file, values, true);
+
+        this.values = values;
+        this.overlaid = null;
 
         converter = new Converter();
 
@@ -157,7 +199,8 @@ public class RootScope extends FileScope {
         this.inWorkflow.set(Boolean.TRUE.equals(inWorkflow));
 
         Stream.of(
-            new PluginPreprocessor())
+            new PluginPreprocessor(),
+            new OptimizerPreprocessor())
             .forEach(p -> getSettings(PreprocessorSettings.class).getPreprocessors().add(p));
 
         Stream.of(
@@ -186,6 +229,7 @@ public class RootScope extends FileScope {
             DefineDirectiveProcessor.class,
             DeleteDirectiveProcessor.class,
             DescriptionDirectiveProcessor.class,
+            EvaluationDirectiveProcessor.class,
             ExtendsDirectiveProcessor.class,
             FileBackendDirectiveProcessor.class,
             ForDirectiveProcessor.class,
@@ -217,6 +261,54 @@ public class RootScope extends FileScope {
         put("ENV", System.getenv());
     }
 
+    /**
+     * Creates a lightweight scope on top of the given {@code overlaid} scope, such as for each use of a virtual
+     * resource.
+     *
+     * <p>The backends, settings, and values are shared with the overlaid scope instead of being set up again, and
+     * only the file scopes and resources are kept separate.</p>
+     *
+     * @param overlaid Nonnull.
+     * @param current Nullable.
+     */
+    protected RootScope(RootScope overlaid, RootScope current) {
+        this(overlaid, current, Collections.synchronizedMap(new OverlayMap<>(overlaid.values)));
+    }
+
+    private RootScope(RootScope overlaid, RootScope current, Map<String, Object> values) {
+        super(null, overlaid.getFile(), values);
+
+        this.values = values;
+        this.overlaid = overlaid;
+        this.converter = overlaid.converter;
+        this.evaluator = new NodeEvaluator();
+        this.backend = overlaid.backend;
+        this.remoteStateBackend = overlaid.remoteStateBackend;
+        this.current = current;
+        this.loadFiles = overlaid.loadFiles;
+        this.inWorkflow.set(overlaid.inWorkflow.get());
+    }
+
+    /**
+     * Creates a lightweight scope on top of this one.
+     *
+     * @param current Nullable.
+     * @see #RootScope(RootScope, RootScope)
+     */
+    public RootScope overlay(RootScope current) {
+        return new RootScope(this, current);
+    }
+
+    @Override
+    public <S extends Settings> S getSettings(Class<S> settingsClass) {
+        return overlaid != null ? overlaid.getSettings(settingsClass) : super.getSettings(settingsClass);
+    }
+
+    @Override
+    public LoadingCache<Class<? extends Settings>, Settings> getSettingsByClass() {
+        return overlaid != null ? overlaid.getSettingsByClass() : super.getSettingsByClass();
+    }
+
     public NodeEvaluator getEvaluator() {
         return evaluator;
     }
@@ -237,14 +329,39 @@ public class RootScope extends FileScope {
         return loadFiles;
     }
 
+    // The root scope that this is being forked from, only while it's evaluated.
+    RootScope getBase() {
+        return base;
+    }
+
+    boolean isUnchangedFromBase(String key) {
+        return unchangedFromBase.contains(key);
+    }
+
+    void setUnchangedFromBase(String key) {
+        unchangedFromBase.add(key);
+    }
+
     public Map<String, Resource> getResources() {
         return resources;
     }
 
+    DeferWaitList getWaitList() {
+        return waitList;
+    }
+
     public List<FileScope> getFileScopes() {
         return fileScopes;
     }
 
+    /**
+     * Returns the file scopes that register their resources before they're merged into one of the
+     * {@link #getFileScopes() file scopes}, such as the ones for the iterations of {@code @for -parallel}.
+     */
+    public Set<FileScope> getPendingFileScopes() {
+        return pendingFileScopes;
+    }
+
     public boolean isInWorkflow() {
         return inWorkflow.get();
     }
@@ -322,9 +439,17 @@ public class RootScope extends FileScope {
     }
 
     public List<Resource> findSortedResourcesIn(Set<String> diffFiles) {
-        Stream<Resource> stream = Stream.concat(Stream.of(this), Stream.of(getResources()))
-            .map(Map::entrySet)
-            .flatMap(Collection::stream)
+        List<Entry<String, ?>> entries = new ArrayList<>();
+
+        synchronized (values) {
+            entries.addAll(values.entrySet());
+        }
+
+        synchronized (resources) {
+            entries.addAll(resources.entrySet());
+        }
+
+        Stream<Resource> stream = entries.stream()
             .filter(e -> e.getValue() instanceof Resource)
             .filter(e -> ((Resource) e.getValue()).primaryKey().equals(e.getKey()))
             .map(Entry::getValue)
@@ -338,24 +463,92 @@ public class RootScope extends FileScope {
     }
 
     public <T extends Resource> Stream<T> findResourcesByClass(Class<T> resourceClass) {
-        return findSortedResources()
-            .stream()
-            .filter(resourceClass::isInstance)
-            .map(resourceClass::cast);
+        List<T> found = findRootResourcesByClass(resourceClass);
+
+        synchronized (resources) {
+            found.addAll(resourceMap.findByClass(resourceClass));
+        }
+
+        return found.stream();
+    }
+
+    /**
+     * Returns all the resources of the given {@code type} whose names start with the given {@code prefix}, in the
+     * same order as {@link #findSortedResources()}.
+     */
+    public List<Resource> findResourcesByNamePrefix(String type, String prefix) {
+        List<Resource> found = findRootResources(
+            Resource.class,
+            r -> type.equals(DiffableType.getInstance(r.getClass()).getName())
+                && DiffableInternals.getName(r).startsWith(prefix));
+
+        synchronized (resources) {
+            found.addAll(resourceMap.findByNamePrefix(type, prefix));
+        }
+
+        return found;
+    }
+
+    private <T extends Resource> List<T> findRootResourcesByClass(Class<T> resourceClass) {
+        return findRootResources(resourceClass, r -> true);
+    }
+
+    // Resources put directly into this scope instead of a file aren't indexed, but there are few of them, if any.
+    private <T extends Resource> List<T> findRootResources(Class<T> resourceClass, Predicate<T> predicate) {
+        List<T> found = new ArrayList<>();
+
+        synchronized (values) {
+            values.forEach((key, value) -> {
+                if (resourceClass.isInstance(value) && ((Resource) value).primaryKey().equals(key)) {
+                    T resource = resourceClass.cast(value);
+
+                    if (predicate.test(resource)) {
+                        found.add(resource);
+                    }
+                }
+            });
+        }
+
+        return found;
     }
 
     public Resource findResource(String name) {
-        Resource resource = Stream.concat(Stream.of(this), getFileScopes().stream())
+        Object value = get(name);
+        Resource resource;
+
+        if (value instanceof Resource) {
+            resource = (Resource) value;
+
+        } else {
+            resource = resources.get(name);
+
+            if (getSettings(EvaluationSettings.class).isCheck()) {
+                checkResource(name, resource);
+            }
+        }
+
+        if (resource == null && inWorkflow.get()) {
+            resource = workflowRemovedResources.get(name);
+        }
+        return resource;
+    }
+
+    // Makes sure that the resources registered by the file scopes match what they contain.
+    private void checkResource(String name, Resource resource) {
+        Resource found = Stream.concat(getFileScopes().stream(), pendingFileScopes.stream())
             .map(s -> s.get(name))
             .filter(Resource.class::isInstance)
             .map(Resource.class::cast)
             .findFirst()
             .orElse(null);
 
-        if (resource == null && inWorkflow.get()) {
-            resource = workflowRemovedResources.get(name);
+        if (resource != found) {
+            throw new Bug(String.format(
+                "%s is registered as %s but the file scopes contain %s!",
+                name,
+                resource,
+                found));
         }
-        return resource;
     }
 
     public <T extends Resource> T findResourceById(Class<T> resourceClass, Object id) {
@@ -372,10 +565,32 @@ public class RootScope extends FileScope {
                 resourceClass.getSimpleName()));
         }
 
-        return findResourcesByClass(resourceClass)
+        T resource = findResourceById(resourceClass, idField, id);
+
+        return resource != null ? resource : type.newExternal(this, id);
+    }
+
+    /**
+     * Returns the resource of the given {@code resourceClass} whose {@code idField} has the given {@code id}, or
+     * {@code null} if there isn't one.
+     *
+     * <p>Subclasses that find their resources elsewhere, like {@link #findResourcesByClass}, must override this
+     * too.</p>
+     */
+    protected <T extends Resource> T findResourceById(Class<T> resourceClass, DiffableField idField, Object id) {
+        T resource = findRootResourcesByClass(resourceClass)
+            .stream()
             .filter(r -> id.equals(idField.getValue(r)))
             .findFirst()
-            .orElseGet(() -> type.newExternal(this, id));
+            .orElse(null);
+
+        if (resource == null) {
+            synchronized (resources) {
+                resource = resourceMap.findById(resourceClass, idField, id);
+            }
+        }
+
+        return resource;
     }
 
     public List<Node> load() {
@@ -394,11 +609,16 @@ public class RootScope extends FileScope {
             // Ignore for now since this is reevaluated later.
         }
 
+        loadedSettings = new HashMap<>(getSettingsByClass().asMap());
         return finalNodes;
     }
 
     public void evaluate() {
-        List<Node> nodes = load();
+        evaluateFiles(load());
+    }
+
+    private void evaluateFiles(List<Node> nodes) {
+        List<Node> files = new ArrayList<>();
         Set<String> existingFiles;
 
         try (Stream<String> s = list()) {
@@ -417,18 +637,70 @@ public class RootScope extends FileScope {
             } else {
                 Optional.of(loadFiles.iterator().next())
                     .filter(existingFiles::contains)
-                    .ifPresent(f -> evaluateFile(f, nodes::add));
+                    .ifPresent(f -> evaluateFile(f, files::add));
             }
 
+        } else if (getSettings(EvaluationSettings.class).isParallel()) {
+            evaluateFilesInParallel(existingFiles, files::add);
+
         } else {
-            existingFiles.forEach(f -> evaluateFile(f, nodes::add));
+            existingFiles.forEach(f -> evaluateFile(f, files::add));
         }
 
+        // Preprocessors only run on the init file, but the optimizer is safe to run on all files.
+        nodes.addAll(new OptimizerPreprocessor().preprocess(files, this));
+
         evaluator.evaluate(this, nodes);
 
         processRootSettings();
     }
 
+    /**
+     * Evaluates this scope like {@link #evaluate()}, but reuses the files that the given {@code base} parsed if
+     * they didn't change, along with the values in the resources that didn't read anything that changed.
+     *
+     * @param base Must have been evaluated with the same backend.
+     */
+    public void evaluate(RootScope base) {
+        evaluate(base, this::load);
+    }
+
+    private void evaluate(RootScope base, Supplier<List<Node>> loader) {
+        this.base = Preconditions.checkNotNull(base);
+
+        // The base isn't needed once the evaluation is done, and keeping it would chain every previous root scope.
+        try {
+            evaluateFiles(loader.get());
+
+        } finally {
+            this.base = null;
+            unchangedFromBase.clear();
+        }
+    }
+
+    /**
+     * Creates and evaluates a copy of this scope against the given {@code current} state, such as for each stage of
+     * a workflow.
+     *
+     * @param current Nullable.
+     */
+    public RootScope fork(RootScope current) {
+        RootScope fork = new RootScope(
+            getFile(),
+            getBackend(),
+            getRemoteStateBackend(),
+            current,
+            getLoadFiles(),
+            inWorkflow.get());
+
+        // The init file was already evaluated into this scope, so share what it loaded instead of loading it again.
+        // Settings that the other files created, such as the workflows, aren't shared.
+        fork.getSettingsByClass().putAll(loadedSettings);
+        fork.putAll(this);
+        fork.evaluate(this, ArrayList::new);
+        return fork;
+    }
+
     public void validate() {
         StringBuilder sb = new StringBuilder();
 
@@ -441,10 +713,16 @@ public class RootScope extends FileScope {
             throw new GyroException(sb.toString());
         }
 
-        List<ValidationError> errors = findSortedResources().stream()
-            .map(r -> DiffableType.getInstance(r).validate(r))
-            .flatMap(List::stream)
-            .collect(Collectors.toList());
+        // Resources are validated concurrently, but the errors are collected in the order of the resources.
+        List<Supplier<List<ValidationError>>> validations = new ArrayList<>();
+
+        for (Resource resource : findSortedResources()) {
+            validations.add(() -> DiffableType.getInstance(resource).validate(resource));
+        }
+
+        List<ValidationError> errors = new ArrayList<>();
+
+        ParallelTasks.supplyAll(validations).forEach(errors::addAll);
 
         if (!errors.isEmpty()) {
             throw new ValidationErrorException(errors);
@@ -465,7 +743,8 @@ public class RootScope extends FileScope {
             getLoadFiles(),
             true);
 
-        rootScope.load();
+        // The init file was already evaluated into this scope, so share its settings instead of loading it again.
+        rootScope.getSettingsByClass().putAll(getSettingsByClass().asMap());
         rootScope.putAll(this);
         rootScope.getFileScopes()
             .addAll(getFileScopes()
@@ -488,7 +767,7 @@ public class RootScope extends FileScope {
         }
 
         try (GyroInputStream input = openInput(file)) {
-            consumer.accept((FileNode) Node.parse(input, file, GyroParser::file));
+            consumer.accept(parseFile(file, ByteStreams.toByteArray(input)));
 
         } catch (IOException error) {
             throw new Bug(error);
@@ -500,6 +779,36 @@ public class RootScope extends FileScope {
         }
     }
 
+    // Reuses the file that the base parsed if its content is still the same.
+    private FileNode parseFile(String file, byte[] content) throws IOException {
+        ParsedFile parsed = base != null ? base.parsedFiles.get(file) : null;
+
+        if (parsed == null || !Arrays.equals(parsed.content, content)) {
+            parsed = new ParsedFile(
+                content,
+                (FileNode) Node.parse(new ByteArrayInputStream(content), file, GyroParser::file));
+        }
+
+        parsedFiles.put(file, parsed);
+        return parsed.node;
+    }
+
+    // Parses the files concurrently, but passes them and reports any errors in the original order.
+    private void evaluateFilesInParallel(Collection<String> files, Consumer<FileNode> consumer) {
+        List<Supplier<List<FileNode>>> evaluations = new ArrayList<>();
+
+        for (String file : files) {
+            evaluations.add(() -> {
+                List<FileNode> nodes = new ArrayList<>();
+
+                evaluateFile(file, nodes::add);
+                return nodes;
+            });
+        }
+
+        ParallelTasks.supplyAll(evaluations).forEach(nodes -> nodes.forEach(consumer));
+    }
+
     private void processRootSettings() {
         getSettings(RootSettings.class).getProcessors().forEach(p -> {
             try {
@@ -512,4 +821,17 @@ public class RootScope extends FileScope {
             }
         });
     }
+
+    private static class ParsedFile {
+
+        private final byte[] content;
+        private final FileNode node;
+
+        public ParsedFile(byte[] content, FileNode node) {
+            this.content = content;
+            this.node = node;
+        }
+
+    }
+
 }
@@ -22,6 +22,7 @@ import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import com.google.common.base.Preconditions;
 import com.google.common.cache.CacheBuilder;
@@ -33,7 +34,13 @@ import gyro.util.MapWrapper;
 
 public class Scope extends MapWrapper<String, Object> {
 
+    private static final AtomicIntegerFieldUpdater<Scope> VERSION = AtomicIntegerFieldUpdater.newUpdater(
+        Scope.class,
+        "version");
+
     private final Scope parent;
+    private final boolean versioned;
+    private volatile int version;
     private final Map<Object, String> names = new IdentityHashMap<>();
     private final Map<String, Node> locations = new HashMap<>();
 
@@ -54,8 +61,19 @@ public class Scope extends MapWrapper<String, Object> {
      * @param values Nullable.
      */
     public Scope(Scope parent, Map<String, Object> values) {
+        this(parent, values, values == null);
+    }
+
+    /**
+     * @param parent Nullable.
+     * @param values Nullable.
+     * @param versioned {@code true} if all writes to the given {@code values} go through this scope or its parents, so
+     *                  that they can be tracked by their versions.
+     */
+    public Scope(Scope parent, Map<String, Object> values, boolean versioned) {
         super(values != null ? values : new LinkedHashMap<>());
         this.parent = parent;
+        this.versioned = versioned;
     }
 
     /**
@@ -69,6 +87,39 @@ public class Scope extends MapWrapper<String, Object> {
         return parent;
     }
 
+    // Whether the version changes on every write to the values, so that the lookups can be cached.
+    boolean isVersioned() {
+        return versioned;
+    }
+
+    int getVersion() {
+        return version;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        VERSION.incrementAndGet(this);
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> other) {
+        VERSION.incrementAndGet(this);
+        super.putAll(other);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        VERSION.incrementAndGet(this);
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        VERSION.incrementAndGet(this);
+        super.clear();
+    }
+
     @SuppressWarnings("unchecked")
     public <S extends Scope> S getClosest(Class<S> scopeClass) {
         for (Scope s = this; s != null; s = s.getParent()) {
@@ -90,8 +141,10 @@ public class Scope extends MapWrapper<String, Object> {
 
     public Object find(Node node, String key) {
         for (Scope s = this; s != null; s = s.parent) {
-            if (s.containsKey(key)) {
-                return s.get(key);
+            Object value = s.get(key);
+
+            if (value != null || s.containsKey(key)) {
+                return value;
             }
         }
 
@@ -62,6 +62,8 @@ public class State {
     private final boolean test;
     private final Map<String, FileScope> states = new HashMap<>();
     private final Map<String, String> newNames = new HashMap<>();
+    private final Map<String, Integer> addedOrders = new HashMap<>();
+    private final ThreadLocal<DeferredUpdates> deferredUpdates = new ThreadLocal<>();
     private Boolean removeModifiedInField;
 
     public State(RootScope current, RootScope pending, boolean test) {
@@ -72,7 +74,8 @@ public class State {
             null,
             current.getLoadFiles());
 
-        root.evaluate();
+        // Same state files as the current, so reuse what it parsed.
+        root.evaluate(current);
 
         this.test = test;
 
@@ -97,7 +100,54 @@ public class State {
         this.removeModifiedInField = removeModifiedInField;
     }
 
+    /**
+     * Runs the given {@code runnable}, holding back the updates to the state from the changes that it executes on
+     * the current thread until they're {@linkplain #commit() committed}.
+     *
+     * <p>This lets the changes execute concurrently without a save writing the resources of the ones that are still
+     * running. The resources that the changes add are written in the given {@code order} among the others added this
+     * way, so that the state files don't depend on the order in which the changes finish.</p>
+     */
+    public void deferUpdates(int order, Runnable runnable) {
+        deferredUpdates.set(new DeferredUpdates(order));
+
+        try {
+            runnable.run();
+
+        } finally {
+            deferredUpdates.remove();
+        }
+    }
+
     public void update(Change change) {
+        DeferredUpdates updates = deferredUpdates.get();
+
+        if (updates != null) {
+            updates.changes.add(change);
+
+        } else {
+            synchronized (this) {
+                apply(change, null);
+            }
+        }
+    }
+
+    /**
+     * Applies the updates held back by {@link #deferUpdates(int, Runnable)} on the current thread, if any, and saves
+     * the state.
+     */
+    public synchronized void commit() {
+        DeferredUpdates updates = deferredUpdates.get();
+
+        if (updates != null) {
+            updates.changes.forEach(c -> apply(c, updates.order));
+            updates.changes.clear();
+        }
+
+        save();
+    }
+
+    private void apply(Change change, Integer order) {
         if (change instanceof Replace) {
             return;
         }
@@ -132,9 +182,14 @@ public class State {
 
             if (typeRoot) {
                 String key = resource.primaryKey();
+                boolean added = !state.containsKey(key);
 
                 state.put(key, resource);
 
+                if (added && order != null) {
+                    reorder(state, key, order);
+                }
+
                 Resource oldResource = state.getRootScope().findResource(key);
 
                 if (oldResource != null) {
@@ -152,6 +207,20 @@ public class State {
         }
     }
 
+    // Moves the resources added by the changes that come after the given order behind the one just added.
+    private void reorder(FileScope state, String key, int order) {
+        addedOrders.put(key, order);
+
+        List<String> laterKeys = state.keySet()
+            .stream()
+            .filter(k -> addedOrders.getOrDefault(k, Integer.MIN_VALUE) > order)
+            .collect(Collectors.toList());
+
+        for (String laterKey : laterKeys) {
+            state.put(laterKey, state.remove(laterKey));
+        }
+    }
+
     private void updateSubresource(Resource parent, Resource subresource, boolean delete) {
         DiffableField field = DiffableType.getInstance(parent.getClass())
             .getField(DiffableInternals.getName(subresource));
@@ -192,7 +261,7 @@ public class State {
         }
     }
 
-    public void save() {
+    public synchronized void save() {
         NodePrinter printer = new NodePrinter();
 
         for (FileScope state : states.values()) {
@@ -392,4 +461,15 @@ public class State {
         save();
     }
 
+    private static class DeferredUpdates {
+
+        private final int order;
+        private final List<Change> changes = new ArrayList<>();
+
+        public DeferredUpdates(int order) {
+            this.order = order;
+        }
+
+    }
+
 }
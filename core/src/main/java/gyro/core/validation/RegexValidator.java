@@ -16,13 +16,28 @@
 
 package gyro.core.validation;
 
+import java.util.regex.Pattern;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
 public class RegexValidator extends AbstractValidator<Regex> {
 
     private static final RegexesValidator VALIDATOR = new RegexesValidator();
 
+    private static final LoadingCache<String, Pattern> PATTERNS = CacheBuilder.newBuilder()
+        .build(new CacheLoader<String, Pattern>() {
+
+            @Override
+            public Pattern load(String regex) {
+                return Pattern.compile(regex);
+            }
+        });
+
     @Override
     protected boolean validate(Regex annotation, Object value) {
-        return value instanceof String && ((String) value).matches(annotation.value());
+        return value instanceof String && PATTERNS.getUnchecked(annotation.value()).matcher((String) value).matches();
     }
 
     @Override
@@ -32,13 +32,15 @@ public class VirtualParameter {
     }
 
     public void copy(Scope source, Scope destination) {
-        if (!source.containsKey(name)) {
+        Object value = source.get(name);
+
+        if (value == null && !source.containsKey(name)) {
             throw new GyroException(String.format(
                 "@|bold %s|@ parameter is required!",
                 name));
 
         } else {
-            destination.put(name, source.get(name));
+            destination.put(name, value);
         }
     }
 
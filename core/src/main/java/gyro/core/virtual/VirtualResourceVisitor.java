@@ -72,16 +72,7 @@ public class VirtualResourceVisitor extends ResourceVisitor {
     public void visit(String name, Scope scope) {
         RootScope root = scope.getRootScope();
 
-        RootScope virtualRoot = new RootScope(
-            root.getFile(),
-            root.getBackend(),
-            root.getRemoteStateBackend(),
-            new VirtualRootScope(root.getCurrent(), name),
-            root.getLoadFiles());
-
-        virtualRoot.getSettingsByClass().putAll(root.getSettingsByClass().asMap());
-        virtualRoot.putAll(root);
-
+        RootScope virtualRoot = root.overlay(new VirtualRootScope(root.getCurrent(), name));
         FileScope file = scope.getFileScope();
         FileScope virtualFile = new FileScope(virtualRoot, file.getFile());
 
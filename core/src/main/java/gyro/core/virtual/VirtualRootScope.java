@@ -21,6 +21,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import gyro.core.resource.DiffableField;
 import gyro.core.resource.DiffableInternals;
 import gyro.core.resource.Resource;
 import gyro.core.scope.RootScope;
@@ -31,10 +32,9 @@ public class VirtualRootScope extends RootScope {
     private final RootScope current;
 
     public VirtualRootScope(RootScope scope, String virtualName) {
-        super(scope.getFile(), scope.getBackend(), scope.getRemoteStateBackend(), null, scope.getLoadFiles());
+        super(scope, null);
         this.virtualName = virtualName;
         this.current = scope;
-        putAll(scope);
         getFileScopes().addAll(scope.getFileScopes());
     }
 
@@ -70,6 +70,21 @@ public class VirtualRootScope extends RootScope {
             .filter(r -> DiffableInternals.getName(r).startsWith(virtualName));
     }
 
+    @Override
+    public List<Resource> findResourcesByNamePrefix(String type, String prefix) {
+        return current.findResourcesByNamePrefix(type, prefix).stream()
+            .filter(r -> DiffableInternals.getName(r).startsWith(virtualName))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    protected <T extends Resource> T findResourceById(Class<T> resourceClass, DiffableField idField, Object id) {
+        return findResourcesByClass(resourceClass)
+            .filter(r -> id.equals(idField.getValue(r)))
+            .findFirst()
+            .orElse(null);
+    }
+
     @Override
     public void evaluate() {
         throw new UnsupportedOperationException();
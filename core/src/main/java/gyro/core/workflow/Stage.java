@@ -34,6 +34,7 @@ import gyro.core.resource.DiffableType;
 import gyro.core.resource.Resource;
 import gyro.core.scope.Defer;
 import gyro.core.scope.DiffableScope;
+import gyro.core.scope.EvaluationSettings;
 import gyro.core.scope.FileScope;
 import gyro.core.scope.RootScope;
 import gyro.core.scope.Scope;
@@ -122,6 +123,7 @@ public class Stage {
             toBeRemoved,
             toBeReplaced);
 
+        diff.setParallel(newPendingRootScope.getSettings(EvaluationSettings.class).isParallelDiff());
         diff.diff();
 
         if (confirmDiff && diff.write(ui)) {
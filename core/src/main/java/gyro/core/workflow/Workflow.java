@@ -54,6 +54,7 @@ public class Workflow {
     private final Map<String, Stage> stages;
     private final List<Stage> executedStages = new ArrayList<>();
     private final Map<String, Map<String, ModifiedIn>> modifiedInFileScopeMap = new HashMap<>();
+    private RootScope basePending;
 
     public Workflow(String type, String name, Scope scope) {
         this.type = Preconditions.checkNotNull(type);
@@ -134,7 +135,8 @@ public class Workflow {
             stage = stages.values().iterator().next();
         }
 
-        // TODO: optimize performance.
+        // Each stage still evaluates the current state again since the previous stage rewrote the state files, but
+        // the pending configuration is only forked.
         while (stage != null) {
             ui.write("\n@|magenta · Executing %s stage|@\n", stage.getName());
 
@@ -229,20 +231,34 @@ public class Workflow {
         }
     }
 
-    private RootScope copyRootScope() {
+    RootScope copyRootScope() {
         RootScope current = root.getCurrent();
         current.setWorkflow();
+
+        // The previous stage rewrote the state files, so the resources registered from them are stale too.
         current.getFileScopes().clear();
+        current.getResources().clear();
         current.evaluate();
 
-        RootScope pending = new RootScope(
-            root.getFile(),
-            root.getBackend(),
-            null,
-            current,
-            root.getLoadFiles(),
-            true);
-        pending.evaluate();
+        // The stages change the pending scope, so the later ones each get a fork of the one that the first stage
+        // evaluated.
+        RootScope pending;
+
+        if (basePending == null) {
+            basePending = new RootScope(
+                root.getFile(),
+                root.getBackend(),
+                null,
+                current,
+                root.getLoadFiles(),
+                true);
+
+            basePending.evaluate();
+            pending = basePending;
+
+        } else {
+            pending = basePending.fork(current);
+        }
 
         restoreModifiedInValues(pending);
 
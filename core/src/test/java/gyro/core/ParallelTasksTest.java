@@ -0,0 +1,135 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import gyro.util.Bug;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ParallelTasksTest {
+
+    @Test
+    void supplyAll() {
+        GyroUI ui = mock(GyroUI.class);
+        List<Supplier<Object>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            int index = i;
+
+            tasks.add(() -> GyroCore.ui() == ui ? index : null);
+        }
+
+        GyroCore.pushUi(ui);
+
+        try {
+            assertThat(ParallelTasks.supplyAll(tasks)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+
+        } finally {
+            GyroCore.popUi();
+        }
+    }
+
+    @Test
+    void supplyAllNested() {
+        List<Supplier<List<ForkJoinPool>>> tasks = new ArrayList<>();
+
+        // More tasks than threads, each blocked on its own nested tasks.
+        for (int i = 0, size = Runtime.getRuntime().availableProcessors() * 2; i < size; i++) {
+            tasks.add(() -> {
+                List<Supplier<ForkJoinPool>> nested = new ArrayList<>();
+
+                nested.add(ParallelTasksTest::currentPool);
+                nested.add(ParallelTasksTest::currentPool);
+
+                List<ForkJoinPool> pools = new ArrayList<>(ParallelTasks.supplyAll(nested));
+
+                pools.add(currentPool());
+                return pools;
+            });
+        }
+
+        List<ForkJoinPool> pools = ParallelTasks.supplyAll(tasks)
+            .stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+
+        assertThat(pools).hasSize(tasks.size() * 3).doesNotContainNull();
+        assertThat(new HashSet<>(pools)).hasSize(1);
+    }
+
+    private static ForkJoinPool currentPool() {
+        Thread thread = Thread.currentThread();
+
+        return thread instanceof ForkJoinWorkerThread ? ((ForkJoinWorkerThread) thread).getPool() : null;
+    }
+
+    @Test
+    void supplyAllErrors() {
+        AtomicInteger finished = new AtomicInteger();
+        List<Supplier<Object>> tasks = new ArrayList<>();
+
+        tasks.add(finished::incrementAndGet);
+
+        tasks.add(() -> {
+            throw new IllegalStateException("first");
+        });
+
+        tasks.add(() -> {
+            throw new IllegalArgumentException("second");
+        });
+
+        tasks.add(finished::incrementAndGet);
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> ParallelTasks.supplyAll(tasks))
+            .withMessage("first");
+
+        assertThat(finished.get()).isEqualTo(2);
+    }
+
+    @Test
+    void join() {
+        CompletableFuture<Object> unchecked = new CompletableFuture<>();
+        CompletableFuture<Object> error = new CompletableFuture<>();
+        CompletableFuture<Object> checked = new CompletableFuture<>();
+
+        unchecked.completeExceptionally(new IllegalStateException());
+        error.completeExceptionally(new AssertionError());
+        checked.completeExceptionally(new IOException());
+
+        assertThatExceptionOfType(IllegalStateException.class).isThrownBy(() -> ParallelTasks.join(unchecked));
+        assertThatExceptionOfType(AssertionError.class).isThrownBy(() -> ParallelTasks.join(error));
+
+        assertThatExceptionOfType(Bug.class)
+            .isThrownBy(() -> ParallelTasks.join(checked))
+            .withCauseInstanceOf(IOException.class);
+    }
+
+}
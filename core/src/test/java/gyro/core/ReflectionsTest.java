@@ -0,0 +1,173 @@
+/*
+ * Copyright 2019, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ReflectionsTest {
+
+    @Test
+    void getterAndSetter() throws NoSuchMethodException {
+        PublicBean bean = new PublicBean();
+        Function<Object, Object> getter = Reflections.getter(PublicBean.class.getMethod("getCount"));
+        BiConsumer<Object, Object> setter = Reflections.setter(PublicBean.class.getMethod("setCount", int.class));
+
+        setter.accept(bean, 3);
+
+        assertThat(getter.apply(bean)).isEqualTo(3);
+    }
+
+    @Test
+    void getterAndSetterNonPublic() throws NoSuchMethodException {
+        PrivateBean bean = new PrivateBean();
+        Function<Object, Object> getter = Reflections.getter(PrivateBean.class.getDeclaredMethod("getName"));
+        BiConsumer<Object, Object> setter = Reflections.setter(PrivateBean.class.getDeclaredMethod(
+            "setName",
+            String.class));
+
+        setter.accept(bean, "foo");
+
+        assertThat(getter.apply(bean)).isEqualTo("foo");
+    }
+
+    @Test
+    void getterErrors() throws NoSuchMethodException {
+        Method unchecked = PublicBean.class.getMethod("getUnchecked");
+        Method checked = PublicBean.class.getMethod("getChecked");
+        PublicBean bean = new PublicBean();
+
+        assertThatExceptionOfType(IllegalStateException.class)
+            .isThrownBy(() -> Reflections.getter(unchecked).apply(bean));
+
+        assertThatExceptionOfType(GyroException.class)
+            .isThrownBy(() -> Reflections.getter(checked).apply(bean))
+            .withCauseInstanceOf(IOException.class);
+    }
+
+    @Test
+    void accessorErrorsSameAsInvoke() throws NoSuchMethodException {
+        PublicBean publicBean = new PublicBean();
+        PrivateBean privateBean = new PrivateBean();
+
+        for (String name : new String[] { "getUnchecked", "getChecked", "getError" }) {
+            Method publicMethod = PublicBean.class.getMethod(name);
+            Method privateMethod = PrivateBean.class.getDeclaredMethod(name);
+
+            assertSameError(
+                () -> Reflections.getter(publicMethod).apply(publicBean),
+                () -> Reflections.invoke(publicMethod, publicBean));
+
+            assertSameError(
+                () -> Reflections.getter(privateMethod).apply(privateBean),
+                () -> Reflections.invoke(privateMethod, privateBean));
+        }
+
+        Method publicSetter = PublicBean.class.getMethod("setError", String.class);
+        Method privateSetter = PrivateBean.class.getDeclaredMethod("setError", String.class);
+
+        assertSameError(
+            () -> Reflections.setter(publicSetter).accept(publicBean, "foo"),
+            () -> Reflections.invoke(publicSetter, publicBean, "foo"));
+
+        assertSameError(
+            () -> Reflections.setter(privateSetter).accept(privateBean, "foo"),
+            () -> Reflections.invoke(privateSetter, privateBean, "foo"));
+    }
+
+    private void assertSameError(Runnable accessor, Runnable invoke) {
+        Throwable expected = catchThrowable(invoke::run);
+        Throwable actual = catchThrowable(accessor::run);
+
+        assertThat(expected).isNotNull();
+        assertThat(actual).isExactlyInstanceOf(expected.getClass());
+
+        if (expected.getCause() != null) {
+            assertThat(actual.getCause()).isExactlyInstanceOf(expected.getCause().getClass());
+
+        } else {
+            assertThat(actual.getCause()).isNull();
+        }
+    }
+
+    public static class PublicBean {
+
+        private int count;
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getUnchecked() {
+            throw new IllegalStateException();
+        }
+
+        public String getChecked() throws IOException {
+            throw new IOException();
+        }
+
+        public String getError() {
+            throw new AssertionError();
+        }
+
+        public void setError(String error) {
+            throw new AssertionError(error);
+        }
+
+    }
+
+    private static class PrivateBean {
+
+        private String name;
+
+        String getName() {
+            return name;
+        }
+
+        void setName(String name) {
+            this.name = name;
+        }
+
+        String getUnchecked() {
+            throw new IllegalStateException();
+        }
+
+        String getChecked() throws IOException {
+            throw new IOException();
+        }
+
+        String getError() {
+            throw new AssertionError();
+        }
+
+        void setError(String error) {
+            throw new AssertionError(error);
+        }
+
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.control;
+
+import java.util.Set;
+
+import gyro.core.FileBackend;
+import gyro.core.GyroException;
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.resource.Resource;
+import gyro.core.scope.Defer;
+import gyro.core.scope.DiffableScope;
+import gyro.core.scope.FileScope;
+import gyro.core.scope.RootScope;
+import gyro.core.scope.State;
+import gyro.lang.ast.Node;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.FileNode;
+import gyro.parser.antlr4.GyroParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ForDirectiveProcessorTest {
+
+    ForDirectiveProcessor processor;
+    FileScope scope;
+
+    @BeforeEach
+    void beforeEach() {
+        processor = new ForDirectiveProcessor();
+        scope = new FileScope(new RootScope("", mock(FileBackend.class), null, null), "");
+    }
+
+    private DirectiveNode parse(String text) {
+        return (DirectiveNode) ((FileNode) Node.parse(text, GyroParser::file)).getBody().get(0);
+    }
+
+    @Test
+    void sequential() {
+        processor.process(scope, parse("@for x -in [1, 2, 3]\n    value: $(x)\n@end\n"));
+
+        assertThat(scope.get("value")).isEqualTo(3L);
+    }
+
+    @Test
+    void parallel() {
+        processor.process(scope, parse("@for x -in [1, 2, 3] -parallel true\n    value: $(x)\n@end\n"));
+
+        assertThat(scope.get("value")).isEqualTo(3L);
+    }
+
+    @Test
+    void parallelDefer() {
+        assertThatExceptionOfType(Defer.class)
+            .isThrownBy(() -> processor.process(
+                scope,
+                parse("@for x -in [1, 2, 3] -parallel true\n    value: $(missing)\n@end\n")));
+    }
+
+    @Test
+    void parallelResources() {
+        scope.getRootScope().put("test::for", ForResource.class);
+        processor.process(scope, parse("@for x -in ['a', 'b', 'c'] -parallel true\n    test::for $(x)\n    end\n@end\n"));
+
+        assertThat(scope.getRootScope().getResources().keySet())
+            .containsExactly("test::for::a", "test::for::b", "test::for::c");
+    }
+
+    @Test
+    void parallelDuplicateResources() {
+        scope.getRootScope().put("test::for", ForResource.class);
+
+        assertThatExceptionOfType(GyroException.class)
+            .isThrownBy(() -> processor.process(
+                scope,
+                parse("@for x -in ['a', 'b'] -parallel true\n    test::for 'foo'\n    end\n@end\n")))
+            .withMessageContaining("has been defined already!");
+    }
+
+    @Test
+    void parallelDeferDuplicateResources() {
+        scope.getRootScope().put("test::for", ForResource.class);
+
+        assertThatExceptionOfType(Defer.class)
+            .isThrownBy(() -> processor.process(
+                scope,
+                parse("@for x -in ['a', 'b'] -parallel true\n    test::for 'foo'\n    end\n    value: $(missing)\n@end\n")))
+            .satisfies(e -> assertThat(e.getSuppressed())
+                .hasSize(1)
+                .allSatisfy(s -> assertThat(s).hasMessageContaining("has been defined already!")));
+    }
+
+    @Test
+    void parallelInsideResource() {
+        DiffableScope diffableScope = new DiffableScope(scope, null);
+
+        assertThatExceptionOfType(GyroException.class)
+            .isThrownBy(() -> processor.process(
+                diffableScope,
+                parse("@for x -in [1, 2, 3] -parallel true\n    value: $(x)\n@end\n")));
+    }
+
+    @Namespace("test")
+    @Type("for")
+    public static class ForResource extends Resource {
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+}
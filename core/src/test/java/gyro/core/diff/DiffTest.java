@@ -0,0 +1,518 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.diff;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import gyro.core.FileBackend;
+import gyro.core.GyroException;
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.ThrowingProcedure;
+import gyro.core.Type;
+import gyro.core.directive.DirectiveProcessor;
+import gyro.core.directive.DirectiveSettings;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.Resource;
+import gyro.core.scope.DiffableScope;
+import gyro.core.scope.FileScope;
+import gyro.core.scope.RootScope;
+import gyro.core.scope.State;
+import gyro.lang.ast.Node;
+import gyro.lang.ast.PairNode;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.KeyBlockNode;
+import gyro.lang.ast.block.ResourceNode;
+import gyro.lang.ast.value.ReferenceNode;
+import gyro.lang.ast.value.ValueNode;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DiffTest {
+
+    @Test
+    void parallel() {
+        Diff serial = diff(false);
+        Diff parallel = diff(true);
+
+        assertThat(describe(parallel)).isEqualTo(describe(serial));
+        assertThat(describe(serial)).contains("Keep r1", "Replace r2", "Create p0", "Delete c0");
+        assertThat(write(parallel)).isEqualTo(write(serial));
+    }
+
+    @Test
+    void parallelSubresources() {
+        FileScope file = new FileScope(new RootScope("", mock(FileBackend.class), null, null), "");
+        List<DiffResource> pending = new ArrayList<>();
+
+        file.getRootScope().getSettings(DirectiveSettings.class).addProcessor(OverlapDirectiveProcessor.class);
+        OverlapDirectiveProcessor.reset();
+
+        for (int i = 0; i < 2; i++) {
+            DiffResource resource = newResource(file, "r" + i, "a");
+
+            resource.setSubresource(DiffableType.getInstance(DiffSubresource.class).newInternal(
+                new DiffableScope(
+                    DiffableInternals.getScope(resource),
+                    new KeyBlockNode("subresource", null, Collections.singletonList(overlap()))),
+                ""));
+
+            pending.add(resource);
+        }
+
+        Diff diff = new Diff(Collections.emptyList(), pending);
+
+        diff.setParallel(true);
+        diff.diff();
+
+        // Reevaluating the subresources concurrently still processes their directives one at a time.
+        assertThat(OverlapDirectiveProcessor.PROCESSED.get()).isEqualTo(2);
+        assertThat(OverlapDirectiveProcessor.OVERLAPPED.get()).isFalse();
+    }
+
+    @Test
+    void executeParallelReevaluate() {
+        MemoryBackend backend = new MemoryBackend();
+        RootScope current = new RootScope("", backend, null, null);
+        RootScope root = new RootScope("", backend, current, null);
+        FileScope file = new FileScope(root, "test.gyro");
+        List<DiffResource> pending = new ArrayList<>();
+
+        root.getFileScopes().add(file);
+        root.getSettings(DirectiveSettings.class).addProcessor(OverlapDirectiveProcessor.class);
+
+        for (int i = 0; i < 2; i++) {
+            String name = "r" + i;
+
+            pending.add(DiffableType.getInstance(DiffResource.class).newInternal(
+                new DiffableScope(
+                    file,
+                    new ResourceNode("test::diff", new ValueNode(name), Collections.singletonList(overlap()))),
+                name));
+        }
+
+        Diff diff = new Diff(Collections.emptyList(), pending);
+
+        diff.diff();
+        diff.setParallelism(2);
+        OverlapDirectiveProcessor.reset();
+        diff.execute(mock(GyroUI.class), new State(current, root, false));
+
+        // The two independent changes are reevaluated concurrently, but their directives are still processed one at
+        // a time.
+        assertThat(OverlapDirectiveProcessor.PROCESSED.get()).isEqualTo(2);
+        assertThat(OverlapDirectiveProcessor.OVERLAPPED.get()).isFalse();
+    }
+
+    private Node overlap() {
+        return new DirectiveNode(
+            "overlap",
+            Collections.emptyList(),
+            Collections.emptyList(),
+            Collections.emptyList(),
+            Collections.emptyList());
+    }
+
+    @Test
+    void dependencies() {
+        FileScope file = new FileScope(new RootScope("", mock(FileBackend.class), null, null), "");
+        DiffResource r0 = newResource(file, "r0", "a");
+
+        file.put("first", r0);
+
+        List<Change> changes = new ArrayList<>();
+
+        changes.add(new Create(r0));
+        changes.add(new Create(newResource(file, "r1", reference("test::diff", "r0"))));
+        changes.add(new Create(newResource(file, "r2", "a")));
+        changes.add(new Create(newResource(file, "r3", reference("first"))));
+        changes.add(new Create(newResource(file, "r4", reference("test::diff", "r*"))));
+
+        ChangeGraph graph = new ChangeGraph(changes);
+
+        assertThat(graph.getDependencies(1, false)).containsExactly(0);
+        assertThat(graph.getDependencies(2, false)).isEmpty();
+        assertThat(graph.getDependencies(3, false)).containsExactly(0);
+        assertThat(graph.getDependencies(4, false)).containsExactly(0, 1, 2, 3);
+        assertThat(graph.getDependencies(0, true)).containsExactly(1, 3, 4);
+        assertThat(graph.getDependencies(2, true)).containsExactly(4);
+    }
+
+    @Test
+    void executeParallel() {
+        Execution serial = new Execution(20, -1);
+        Execution parallel = new Execution(20, -1);
+
+        serial.execute(1);
+        parallel.execute(4);
+
+        assertThat(serial.created).hasSize(20);
+        assertThat(parallel.created).containsExactlyInAnyOrderElementsOf(serial.created);
+        assertThat(parallel.isInOrder()).isTrue();
+        assertThat(parallel.savedEarly).isEmpty();
+        assertThat(parallel.getSavedNames()).isEqualTo(serial.getSavedNames());
+        assertThat(parallel.getSaved()).isEqualTo(serial.getSaved());
+    }
+
+    @Test
+    void executeParallelFailure() {
+        Execution execution = new Execution(20, 5);
+
+        assertThatExceptionOfType(GyroException.class).isThrownBy(() -> execution.execute(4));
+
+        assertThat(execution.created).doesNotContain("r5", "r6", "r7");
+        assertThat(execution.isInOrder()).isTrue();
+        assertThat(execution.savedEarly).isEmpty();
+
+        // Only the finished changes are saved, in the order of the changes.
+        assertThat(execution.getSavedNames()).isEqualTo(execution.created
+            .stream()
+            .sorted(Comparator.comparing(n -> Integer.parseInt(n.substring(1))))
+            .collect(Collectors.toList()));
+    }
+
+    private Diff diff(boolean parallel) {
+        FileScope file = new FileScope(new RootScope("", mock(FileBackend.class), null, null), "");
+        List<DiffResource> current = new ArrayList<>();
+        List<DiffResource> pending = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            current.add(newResource(file, "r" + i, "a"));
+            pending.add(newResource(file, "r" + i, i % 2 == 0 ? "b" : "a"));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            current.add(newResource(file, "c" + i, "a"));
+            pending.add(newResource(file, "p" + i, "a"));
+        }
+
+        Diff diff = new Diff(current, pending);
+
+        diff.setParallel(parallel);
+        diff.diff();
+        return diff;
+    }
+
+    private DiffResource newResource(FileScope file, String name, Node value) {
+        DiffableScope scope = new DiffableScope(
+            file,
+            new ResourceNode(
+                "test::diff",
+                new ValueNode(name),
+                Collections.singletonList(new PairNode(new ValueNode("value"), value))));
+
+        return DiffableType.getInstance(DiffResource.class).newInternal(scope, name);
+    }
+
+    private Node reference(String... arguments) {
+        return new ReferenceNode(
+            Arrays.stream(arguments).map(ValueNode::new).collect(Collectors.toList()),
+            Collections.emptyList(),
+            Collections.emptyList());
+    }
+
+    private DiffResource newResource(FileScope file, String name, String value) {
+        DiffableScope scope = new DiffableScope(file, null);
+
+        scope.put("value", value);
+        return DiffableType.getInstance(DiffResource.class).newInternal(scope, name);
+    }
+
+    private List<String> describe(Diff diff) {
+        return diff.getChanges()
+            .stream()
+            .map(c -> c.getClass().getSimpleName() + " " + DiffableInternals.getName(c.getDiffable()))
+            .collect(Collectors.toList());
+    }
+
+    private String write(Diff diff) {
+        StringBuilder output = new StringBuilder();
+        GyroUI ui = mock(GyroUI.class);
+
+        doAnswer(i -> {
+            Object[] arguments = i.getArguments();
+
+            output.append(String.format((String) arguments[0], Arrays.copyOfRange(arguments, 1, arguments.length)));
+            return null;
+        }).when(ui).write(anyString(), any());
+
+        doAnswer(i -> {
+            output.append("<indent>");
+            ((ThrowingProcedure<?>) i.getArgument(0)).execute();
+            output.append("<unindent>");
+            return null;
+        }).when(ui).indented(any());
+
+        assertThat(diff.write(ui)).isTrue();
+        return output.toString();
+    }
+
+    // Creates chains of 4 resources that each depend on the previous one.
+    private class Execution {
+
+        private final MemoryBackend backend = new MemoryBackend();
+        private final List<DiffResource> resources = new ArrayList<>();
+        private final List<String> created = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> savedEarly = Collections.synchronizedList(new ArrayList<>());
+        private final State state;
+
+        public Execution(int size, int failure) {
+            RootScope current = new RootScope("", backend, null, null);
+            RootScope pending = new RootScope("", backend, current, null);
+            FileScope file = new FileScope(pending, "test.gyro");
+
+            pending.getFileScopes().add(file);
+
+            state = new State(current, pending, false);
+
+            for (int i = 0; i < size; i++) {
+                DiffResource resource = newResource(file, "r" + i, i == failure ? "fail" : "a");
+
+                if (i % 4 != 0) {
+                    resource.setDependency(resources.get(i - 1));
+                }
+
+                resource.execution = this;
+                resources.add(resource);
+            }
+        }
+
+        public void execute(int parallelism) {
+            Diff diff = new Diff(Collections.emptyList(), resources);
+
+            diff.diff();
+            diff.setParallelism(parallelism);
+            diff.execute(mock(GyroUI.class), state);
+        }
+
+        public boolean isInOrder() {
+            return resources.stream()
+                .filter(r -> r.getDependency() != null && created.contains(r.name()))
+                .allMatch(r -> created.indexOf(r.getDependency().name()) < created.indexOf(r.name()));
+        }
+
+        public String getSaved() {
+            return backend.files.getOrDefault("test.gyro", "");
+        }
+
+        public List<String> getSavedNames() {
+            List<String> names = new ArrayList<>();
+            Matcher matcher = Pattern.compile("test::diff '?(\\w+)").matcher(getSaved());
+
+            while (matcher.find()) {
+                names.add(matcher.group(1));
+            }
+
+            return names;
+        }
+
+    }
+
+    private static class MemoryBackend extends FileBackend {
+
+        private final Map<String, String> files = new ConcurrentHashMap<>();
+
+        @Override
+        public Stream<String> list() {
+            return Stream.empty();
+        }
+
+        @Override
+        public InputStream openInput(String file) {
+            String content = files.get(file);
+
+            return content != null ? new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)) : null;
+        }
+
+        @Override
+        public OutputStream openOutput(String file) {
+            return new ByteArrayOutputStream() {
+
+                @Override
+                public void close() {
+                    files.put(file, new String(toByteArray(), StandardCharsets.UTF_8));
+                }
+            };
+        }
+
+        @Override
+        public void delete(String file) {
+            files.remove(file);
+        }
+
+    }
+
+    @Namespace("test")
+    @Type("diff")
+    public static class DiffResource extends Resource {
+
+        private String value;
+        private DiffResource dependency;
+        private DiffSubresource subresource;
+        private Execution execution;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public DiffResource getDependency() {
+            return dependency;
+        }
+
+        public void setDependency(DiffResource dependency) {
+            this.dependency = dependency;
+        }
+
+        public DiffSubresource getSubresource() {
+            return subresource;
+        }
+
+        public void setSubresource(DiffSubresource subresource) {
+            this.subresource = subresource;
+        }
+
+        public String name() {
+            return DiffableInternals.getName(this);
+        }
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+            if (execution == null) {
+                return;
+            }
+
+            if (execution.getSavedNames().contains(name())) {
+                execution.savedEarly.add(name());
+            }
+
+            if ("fail".equals(value)) {
+                throw new IllegalStateException();
+            }
+
+            execution.created.add(name());
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+    public static class DiffSubresource extends Resource {
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+    // Records whether the directives were processed at the same time. Each one waits a bit for another one like a
+    // blocked evaluation would, so that the pool can start it even when it only has one thread.
+    @Type("overlap")
+    public static class OverlapDirectiveProcessor extends DirectiveProcessor<DiffableScope> {
+
+        static final AtomicInteger PROCESSED = new AtomicInteger();
+        static final AtomicBoolean OVERLAPPED = new AtomicBoolean();
+        private static final AtomicInteger ACTIVE = new AtomicInteger();
+
+        static void reset() {
+            PROCESSED.set(0);
+            OVERLAPPED.set(false);
+        }
+
+        @Override
+        public void process(DiffableScope scope, DirectiveNode node) throws InterruptedException {
+            PROCESSED.incrementAndGet();
+
+            if (ACTIVE.incrementAndGet() > 1) {
+                OVERLAPPED.set(true);
+            }
+
+            try {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        Thread.sleep(10);
+                        return isReleasable();
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return ACTIVE.get() > 1 || System.nanoTime() > deadline;
+                    }
+                });
+
+            } finally {
+                ACTIVE.decrementAndGet();
+            }
+        }
+
+    }
+
+}
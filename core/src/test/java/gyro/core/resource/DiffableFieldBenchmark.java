@@ -0,0 +1,625 @@
+/*
+ * Copyright 2019, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.resource;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.Reflections;
+import gyro.core.Type;
+import gyro.core.scope.State;
+
+/**
+ * Compares {@link DiffableField#getValue} and {@link DiffableField#setValue} against calling the same getters and
+ * setters through {@link Reflections#invoke}, on a resource type with {@value #FIELD_COUNT} fields. That many
+ * accessors make the shared call sites polymorphic like they are for the larger provider types, which a type with a
+ * few fields wouldn't show.
+ *
+ * <p>Not part of the test suite. Run it directly with the test classpath.</p>
+ */
+public class DiffableFieldBenchmark {
+
+    private static final int FIELD_COUNT = 50;
+    private static final int ITERATIONS = 100_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String... arguments) throws NoSuchMethodException {
+        List<DiffableField> fields = DiffableType.getInstance(BenchmarkResource.class).getFields();
+        Method[] getters = new Method[FIELD_COUNT];
+        Method[] setters = new Method[FIELD_COUNT];
+
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            getters[i] = BenchmarkResource.class.getMethod("getField" + i);
+            setters[i] = BenchmarkResource.class.getMethod("setField" + i, String.class);
+        }
+
+        BenchmarkResource resource = new BenchmarkResource();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.printf(
+                "round %d: reflection %d ns/op, accessors %d ns/op%n",
+                round,
+                runReflection(resource, getters, setters),
+                runAccessors(resource, fields));
+        }
+    }
+
+    private static long runReflection(BenchmarkResource resource, Method[] getters, Method[] setters) {
+        long sink = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (int f = 0; f < FIELD_COUNT; f++) {
+                Reflections.invoke(setters[f], resource, "value");
+                sink += ((String) Reflections.invoke(getters[f], resource)).length();
+            }
+        }
+
+        return elapsed(start, sink);
+    }
+
+    private static long runAccessors(BenchmarkResource resource, List<DiffableField> fields) {
+        long sink = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (DiffableField field : fields) {
+                field.setValue(resource, "value");
+                sink += ((String) field.getValue(resource)).length();
+            }
+        }
+
+        return elapsed(start, sink);
+    }
+
+    private static long elapsed(long start, long sink) {
+        long elapsed = System.nanoTime() - start;
+
+        if (sink == 42) {
+            System.out.println();
+        }
+
+        return elapsed / ((long) ITERATIONS * FIELD_COUNT);
+    }
+
+    @Namespace("benchmark")
+    @Type("resource")
+    public static class BenchmarkResource extends Resource {
+
+        private String field0;
+
+        public String getField0() {
+            return field0;
+        }
+
+        public void setField0(String field0) {
+            this.field0 = field0;
+        }
+
+        private String field1;
+
+        public String getField1() {
+            return field1;
+        }
+
+        public void setField1(String field1) {
+            this.field1 = field1;
+        }
+
+        private String field2;
+
+        public String getField2() {
+            return field2;
+        }
+
+        public void setField2(String field2) {
+            this.field2 = field2;
+        }
+
+        private String field3;
+
+        public String getField3() {
+            return field3;
+        }
+
+        public void setField3(String field3) {
+            this.field3 = field3;
+        }
+
+        private String field4;
+
+        public String getField4() {
+            return field4;
+        }
+
+        public void setField4(String field4) {
+            this.field4 = field4;
+        }
+
+        private String field5;
+
+        public String getField5() {
+            return field5;
+        }
+
+        public void setField5(String field5) {
+            this.field5 = field5;
+        }
+
+        private String field6;
+
+        public String getField6() {
+            return field6;
+        }
+
+        public void setField6(String field6) {
+            this.field6 = field6;
+        }
+
+        private String field7;
+
+        public String getField7() {
+            return field7;
+        }
+
+        public void setField7(String field7) {
+            this.field7 = field7;
+        }
+
+        private String field8;
+
+        public String getField8() {
+            return field8;
+        }
+
+        public void setField8(String field8) {
+            this.field8 = field8;
+        }
+
+        private String field9;
+
+        public String getField9() {
+            return field9;
+        }
+
+        public void setField9(String field9) {
+            this.field9 = field9;
+        }
+
+        private String field10;
+
+        public String getField10() {
+            return field10;
+        }
+
+        public void setField10(String field10) {
+            this.field10 = field10;
+        }
+
+        private String field11;
+
+        public String getField11() {
+            return field11;
+        }
+
+        public void setField11(String field11) {
+            this.field11 = field11;
+        }
+
+        private String field12;
+
+        public String getField12() {
+            return field12;
+        }
+
+        public void setField12(String field12) {
+            this.field12 = field12;
+        }
+
+        private String field13;
+
+        public String getField13() {
+            return field13;
+        }
+
+        public void setField13(String field13) {
+            this.field13 = field13;
+        }
+
+        private String field14;
+
+        public String getField14() {
+            return field14;
+        }
+
+        public void setField14(String field14) {
+            this.field14 = field14;
+        }
+
+        private String field15;
+
+        public String getField15() {
+            return field15;
+        }
+
+        public void setField15(String field15) {
+            this.field15 = field15;
+        }
+
+        private String field16;
+
+        public String getField16() {
+            return field16;
+        }
+
+        public void setField16(String field16) {
+            this.field16 = field16;
+        }
+
+        private String field17;
+
+        public String getField17() {
+            return field17;
+        }
+
+        public void setField17(String field17) {
+            this.field17 = field17;
+        }
+
+        private String field18;
+
+        public String getField18() {
+            return field18;
+        }
+
+        public void setField18(String field18) {
+            this.field18 = field18;
+        }
+
+        private String field19;
+
+        public String getField19() {
+            return field19;
+        }
+
+        public void setField19(String field19) {
+            this.field19 = field19;
+        }
+
+        private String field20;
+
+        public String getField20() {
+            return field20;
+        }
+
+        public void setField20(String field20) {
+            this.field20 = field20;
+        }
+
+        private String field21;
+
+        public String getField21() {
+            return field21;
+        }
+
+        public void setField21(String field21) {
+            this.field21 = field21;
+        }
+
+        private String field22;
+
+        public String getField22() {
+            return field22;
+        }
+
+        public void setField22(String field22) {
+            this.field22 = field22;
+        }
+
+        private String field23;
+
+        public String getField23() {
+            return field23;
+        }
+
+        public void setField23(String field23) {
+            this.field23 = field23;
+        }
+
+        private String field24;
+
+        public String getField24() {
+            return field24;
+        }
+
+        public void setField24(String field24) {
+            this.field24 = field24;
+        }
+
+        private String field25;
+
+        public String getField25() {
+            return field25;
+        }
+
+        public void setField25(String field25) {
+            this.field25 = field25;
+        }
+
+        private String field26;
+
+        public String getField26() {
+            return field26;
+        }
+
+        public void setField26(String field26) {
+            this.field26 = field26;
+        }
+
+        private String field27;
+
+        public String getField27() {
+            return field27;
+        }
+
+        public void setField27(String field27) {
+            this.field27 = field27;
+        }
+
+        private String field28;
+
+        public String getField28() {
+            return field28;
+        }
+
+        public void setField28(String field28) {
+            this.field28 = field28;
+        }
+
+        private String field29;
+
+        public String getField29() {
+            return field29;
+        }
+
+        public void setField29(String field29) {
+            this.field29 = field29;
+        }
+
+        private String field30;
+
+        public String getField30() {
+            return field30;
+        }
+
+        public void setField30(String field30) {
+            this.field30 = field30;
+        }
+
+        private String field31;
+
+        public String getField31() {
+            return field31;
+        }
+
+        public void setField31(String field31) {
+            this.field31 = field31;
+        }
+
+        private String field32;
+
+        public String getField32() {
+            return field32;
+        }
+
+        public void setField32(String field32) {
+            this.field32 = field32;
+        }
+
+        private String field33;
+
+        public String getField33() {
+            return field33;
+        }
+
+        public void setField33(String field33) {
+            this.field33 = field33;
+        }
+
+        private String field34;
+
+        public String getField34() {
+            return field34;
+        }
+
+        public void setField34(String field34) {
+            this.field34 = field34;
+        }
+
+        private String field35;
+
+        public String getField35() {
+            return field35;
+        }
+
+        public void setField35(String field35) {
+            this.field35 = field35;
+        }
+
+        private String field36;
+
+        public String getField36() {
+            return field36;
+        }
+
+        public void setField36(String field36) {
+            this.field36 = field36;
+        }
+
+        private String field37;
+
+        public String getField37() {
+            return field37;
+        }
+
+        public void setField37(String field37) {
+            this.field37 = field37;
+        }
+
+        private String field38;
+
+        public String getField38() {
+            return field38;
+        }
+
+        public void setField38(String field38) {
+            this.field38 = field38;
+        }
+
+        private String field39;
+
+        public String getField39() {
+            return field39;
+        }
+
+        public void setField39(String field39) {
+            this.field39 = field39;
+        }
+
+        private String field40;
+
+        public String getField40() {
+            return field40;
+        }
+
+        public void setField40(String field40) {
+            this.field40 = field40;
+        }
+
+        private String field41;
+
+        public String getField41() {
+            return field41;
+        }
+
+        public void setField41(String field41) {
+            this.field41 = field41;
+        }
+
+        private String field42;
+
+        public String getField42() {
+            return field42;
+        }
+
+        public void setField42(String field42) {
+            this.field42 = field42;
+        }
+
+        private String field43;
+
+        public String getField43() {
+            return field43;
+        }
+
+        public void setField43(String field43) {
+            this.field43 = field43;
+        }
+
+        private String field44;
+
+        public String getField44() {
+            return field44;
+        }
+
+        public void setField44(String field44) {
+            this.field44 = field44;
+        }
+
+        private String field45;
+
+        public String getField45() {
+            return field45;
+        }
+
+        public void setField45(String field45) {
+            this.field45 = field45;
+        }
+
+        private String field46;
+
+        public String getField46() {
+            return field46;
+        }
+
+        public void setField46(String field46) {
+            this.field46 = field46;
+        }
+
+        private String field47;
+
+        public String getField47() {
+            return field47;
+        }
+
+        public void setField47(String field47) {
+            this.field47 = field47;
+        }
+
+        private String field48;
+
+        public String getField48() {
+            return field48;
+        }
+
+        public void setField48(String field48) {
+            this.field48 = field48;
+        }
+
+        private String field49;
+
+        public String getField49() {
+            return field49;
+        }
+
+        public void setField49(String field49) {
+            this.field49 = field49;
+        }
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+}
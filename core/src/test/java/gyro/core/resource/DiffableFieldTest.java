@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.resource;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import gyro.core.FileBackend;
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.scope.DiffableScope;
+import gyro.core.scope.FileScope;
+import gyro.core.scope.RootScope;
+import gyro.core.scope.State;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DiffableFieldTest {
+
+    DiffableType<FieldResource> type;
+    RootScope root;
+    FieldResource resource;
+
+    @BeforeEach
+    void beforeEach() {
+        type = DiffableType.getInstance(FieldResource.class);
+        root = spy(new RootScope("", mock(FileBackend.class), null, null));
+        resource = type.newInternal(new DiffableScope(new FileScope(root, ""), null), "resource");
+    }
+
+    @Test
+    void setValueSkipsConverterForSameClass() {
+        type.getField("text").setValue(resource, "foo");
+
+        assertThat(resource.getText()).isEqualTo("foo");
+        verify(root, never()).convertValue(any(), any());
+    }
+
+    @Test
+    void setValueConvertsOtherClass() {
+        DiffableField field = type.getField("number");
+
+        field.setValue(resource, 1);
+        verify(root, never()).convertValue(any(), any());
+
+        field.setValue(resource, "2");
+        assertThat(resource.getNumber()).isEqualTo(2);
+        verify(root).convertValue(Integer.class, "2");
+
+        field.setValue(resource, 3);
+        assertThat(resource.getNumber()).isEqualTo(3);
+        verify(root, times(1)).convertValue(any(), any());
+    }
+
+    @Test
+    void setValueConvertsForObjectSetter() {
+        type.getField("object").setValue(resource, "foo");
+
+        assertThat(resource.getObject()).isEqualTo("foo");
+        verify(root).convertValue(Object.class, "foo");
+    }
+
+    @Test
+    void setValueConvertsForParameterizedSetter() throws Exception {
+        List<String> items = Arrays.asList("foo", "bar");
+        type.getField("items").setValue(resource, items);
+
+        assertThat(resource.getItems()).containsExactly("foo", "bar");
+        verify(root).convertValue(FieldResource.class.getMethod("getItems").getGenericReturnType(), items);
+    }
+
+    @Test
+    void setValueConvertsNull() {
+        type.getField("text").setValue(resource, "foo");
+        type.getField("text").setValue(resource, null);
+
+        assertThat(resource.getText()).isNull();
+        verify(root).convertValue(String.class, null);
+    }
+
+    @Namespace("test")
+    @Type("field")
+    public static class FieldResource extends Resource {
+
+        private List<String> items;
+        private Integer number;
+        private Object object;
+        private String text;
+
+        public List<String> getItems() {
+            return items;
+        }
+
+        public void setItems(List<String> items) {
+            this.items = items;
+        }
+
+        public Integer getNumber() {
+            return number;
+        }
+
+        public void setNumber(Integer number) {
+            this.number = number;
+        }
+
+        public Object getObject() {
+            return object;
+        }
+
+        public void setObject(Object object) {
+            this.object = object;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.resource;
+
+import java.util.Objects;
+
+import gyro.core.scope.TestResource;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DiffableTest {
+
+    @Test
+    void identity() {
+        TestResource resource = new TestResource("foo");
+
+        assertThat(resource.primaryKey()).isEqualTo("test::resource::foo");
+        assertThat(resource.hashCode()).isEqualTo(Objects.hash(null, "foo", "test::resource::foo"));
+        assertThat(resource).isEqualTo(new TestResource("foo"));
+        assertThat(resource).isNotEqualTo(new TestResource("bar"));
+    }
+
+    @Test
+    void identityAfterRename() {
+        TestResource resource = new TestResource("foo");
+        int hash = resource.hashCode();
+
+        DiffableInternals.setName(resource, "bar");
+
+        assertThat(resource.primaryKey()).isEqualTo("test::resource::bar");
+        assertThat(resource.hashCode()).isNotEqualTo(hash);
+        assertThat(resource.hashCode()).isEqualTo(Objects.hash(null, "bar", "test::resource::bar"));
+        assertThat(resource).isEqualTo(new TestResource("bar"));
+    }
+
+}
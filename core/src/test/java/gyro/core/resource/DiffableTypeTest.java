@@ -0,0 +1,155 @@
+/*
+ * Copyright 2019, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.resource;
+
+import java.util.List;
+import java.util.Set;
+
+import gyro.core.FileBackend;
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.scope.DiffableScope;
+import gyro.core.scope.FileScope;
+import gyro.core.scope.RootScope;
+import gyro.core.scope.State;
+import gyro.core.validation.Regex;
+import gyro.core.validation.Required;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DiffableTypeTest {
+
+    @Test
+    void fieldTables() {
+        DiffableType<TableResource> type = DiffableType.getInstance(TableResource.class);
+
+        assertThat(type.getFields()).extracting(DiffableField::getName)
+            .containsExactlyInAnyOrder("children", "id", "parent", "value");
+
+        assertThat(type.getDiffableFields()).extracting(DiffableField::getName).containsExactly("children");
+        assertThat(type.getPlainFields()).extracting(DiffableField::getName)
+            .containsExactlyInAnyOrder("id", "parent", "value");
+
+        assertThat(type.getOutputFields()).extracting(DiffableField::getName).containsExactly("id");
+        assertThat(type.getField("value")).isSameAs(type.getFields().get(3));
+        assertThat(type.getField("missing")).isNull();
+    }
+
+    @Test
+    void validate() {
+        DiffableType<TableResource> type = DiffableType.getInstance(TableResource.class);
+        RootScope root = new RootScope("", mock(FileBackend.class), null, null);
+        DiffableScope scope = new DiffableScope(new FileScope(root, ""), null);
+
+        scope.put("value", "ABC");
+
+        TableResource resource = type.newInternal(scope, "resource");
+
+        assertThat(type.validate(resource)).extracting("fieldName").containsExactly("id", "value");
+
+        resource.setId("id");
+        resource.setValue("abc");
+
+        assertThat(type.validate(resource)).isEmpty();
+    }
+
+    @Namespace("test")
+    @Type("table")
+    public static class TableResource extends Resource {
+
+        private List<TableChild> children;
+        private String id;
+        private TableResource parent;
+        private String value;
+
+        public List<TableChild> getChildren() {
+            return children;
+        }
+
+        public void setChildren(List<TableChild> children) {
+            this.children = children;
+        }
+
+        @Output
+        @Required
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public TableResource getParent() {
+            return parent;
+        }
+
+        public void setParent(TableResource parent) {
+            this.parent = parent;
+        }
+
+        @Regex("[a-z]+")
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+    public static class TableChild extends Diffable {
+
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String primaryKey() {
+            return name;
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DeferTest {
+
+    @Test
+    void executeWakesWaiting() {
+        DeferWaitList waitList = new DeferWaitList();
+        Set<String> registered = new HashSet<>();
+        List<String> attempts = new ArrayList<>();
+
+        Defer.execute(Arrays.asList("a", "b", "c"), item -> {
+            attempts.add(item);
+
+            if (item.equals("a") && !registered.contains("c")) {
+                throw new FindDefer(null, "test", "c");
+
+            } else if (item.equals("c")) {
+                registered.add(item);
+                waitList.wake("test::c");
+            }
+        }, waitList);
+
+        assertThat(attempts).containsExactly("a", "b", "c", "a");
+    }
+
+    @Test
+    void executeRetriesBlocked() {
+        List<String> attempts = new ArrayList<>();
+
+        Defer.execute(Arrays.asList("a", "b"), item -> {
+            attempts.add(item);
+
+            if (item.equals("a") && !attempts.contains("b")) {
+                throw new Defer(null, "not ready");
+            }
+        }, new DeferWaitList());
+
+        assertThat(attempts).containsExactly("a", "b", "a");
+    }
+
+    @Test
+    void executeWithoutProgress() {
+        assertThatExceptionOfType(ExecuteDefer.class)
+            .isThrownBy(() -> Defer.execute(Arrays.asList("a", "b"), item -> {
+                throw new FindDefer(null, "test", "missing");
+            }, new DeferWaitList()));
+    }
+
+    @Test
+    void awaitWoken() throws Exception {
+        DeferWaitList waitList = new DeferWaitList();
+        Set<String> registered = Collections.synchronizedSet(new HashSet<>());
+        CompletableFuture<String> future;
+
+        waitList.start(2);
+
+        future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return waitList.await("test::c", () -> registered.contains("c") ? "c" : null);
+
+            } finally {
+                waitList.finish();
+            }
+        });
+
+        registered.add("c");
+        waitList.wake("test::c");
+        waitList.finish();
+
+        assertThat(future.get()).isEqualTo("c");
+    }
+
+    @Test
+    void awaitStuck() {
+        DeferWaitList waitList = new DeferWaitList();
+
+        waitList.start(1);
+
+        assertThat(waitList.<String>await("test::missing", () -> null)).isNull();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import gyro.lang.ast.Node;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.ResourceNode;
+import gyro.lang.ast.value.ValueNode;
+import gyro.parser.antlr4.GyroParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DependencyGraphTest {
+
+    private DependencyGraph graph(String text) {
+        DependencyGraph graph = new DependencyGraph(n -> false);
+        FileNode file = (FileNode) Node.parse(text, GyroParser::file);
+
+        file.getBody().forEach(n -> graph.add("test.gyro", n));
+        return graph;
+    }
+
+    private List<String> names(List<Node> nodes) {
+        return nodes.stream()
+            .map(ResourceNode.class::cast)
+            .map(ResourceNode::getName)
+            .map(ValueNode.class::cast)
+            .map(ValueNode::getValue)
+            .map(String.class::cast)
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    void sortKeepsOrder() {
+        DependencyGraph graph = graph("test::resource a\nend\ntest::resource b\nend\n");
+
+        assertThat(names(graph.sort())).containsExactly("a", "b");
+    }
+
+    @Test
+    void sortReference() {
+        DependencyGraph graph = graph(
+            "test::resource a\n    other: $(test::resource b)\nend\n"
+                + "test::resource b\nend\n");
+
+        assertThat(names(graph.sort())).containsExactly("b", "a");
+    }
+
+    @Test
+    void sortWildcard() {
+        DependencyGraph graph = graph(
+            "test::resource a\n    others: $(test::resource b*)\nend\n"
+                + "test::resource b1\nend\n"
+                + "test::resource b2\nend\n");
+
+        assertThat(names(graph.sort())).containsExactly("b1", "b2", "a");
+    }
+
+    @Test
+    void sortVariable() {
+        DependencyGraph graph = graph(
+            "test::resource a\n    other: $(foo)\nend\n"
+                + "foo: 'bar'\n");
+
+        assertThat(graph.sort().get(1)).isInstanceOf(ResourceNode.class);
+    }
+
+    @Test
+    void circular() {
+        DependencyGraph graph = graph(
+            "test::resource a\n    other: $(test::resource b)\nend\n"
+                + "test::resource b\n    other: $(test::resource a)\nend\n"
+                + "test::resource c\nend\n");
+
+        assertThat(names(graph.sort())).containsExactly("c");
+        assertThat(graph.getCircularErrors()).hasSize(2).allMatch(CreateDefer.class::isInstance);
+    }
+
+    @Test
+    void circularOutsideReference() {
+        DependencyGraph graph = graph(
+            "test::resource a\n    first: $(test::resource c)\n    other: $(test::resource b)\nend\n"
+                + "test::resource b\n    other: $(test::resource a)\nend\n"
+                + "test::resource c\nend\n");
+
+        assertThat(graph.getCircularErrors())
+            .extracting(e -> ((FindDefer) e.getCause()).getKey())
+            .containsExactly("test::resource::b", "test::resource::a");
+    }
+
+    @Test
+    void circularConditional() {
+        DependencyGraph graph = graph(
+            "test::resource a\n    @if false\n        other: $(test::resource b)\n    @end\nend\n"
+                + "test::resource b\n    other: $(test::resource a)\nend\n");
+
+        assertThat(names(graph.sort())).containsExactly("a", "b");
+        assertThat(graph.getCircularErrors()).isEmpty();
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import gyro.core.FileBackend;
+import gyro.lang.ast.Node;
+import gyro.parser.antlr4.GyroParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ExpressionCompilerTest {
+
+    private Object evaluate(String text, Scope scope) {
+        return ExpressionCompiler.compile(Node.parse(text, GyroParser::value)).evaluate(new NodeEvaluator(), scope);
+    }
+
+    @Test
+    void compileCached() {
+        Node node = Node.parse("1 + 2", GyroParser::value);
+
+        assertThat(ExpressionCompiler.compile(node)).isSameAs(ExpressionCompiler.compile(node));
+    }
+
+    @Test
+    void binary() {
+        assertThat(evaluate("1 + 2 * 3", new Scope(null))).isEqualTo(7L);
+    }
+
+    @Test
+    void binaryFolded() {
+        Expression expression = ExpressionCompiler.compile(Node.parse("1 + 2 = 3", GyroParser::value));
+
+        assertThat(expression).isInstanceOf(ExpressionCompiler.Constant.class);
+    }
+
+    @Test
+    void interpolatedString() {
+        Scope scope = new Scope(new RootScope("", mock(FileBackend.class), null, null));
+
+        scope.put("foo", "bar");
+
+        assertThat(evaluate("\"a $(foo) b\"", scope)).isEqualTo("a bar b");
+    }
+
+    @Test
+    void map() {
+        Scope scope = new Scope(new RootScope("", mock(FileBackend.class), null, null));
+
+        scope.put("foo", "bar");
+
+        assertThat(evaluate("{ a: $(foo), b: [$(a), 'c'] }", scope))
+            .isEqualTo(ImmutableMap.of("a", "bar", "b", ImmutableList.of("bar", "c")));
+    }
+
+}
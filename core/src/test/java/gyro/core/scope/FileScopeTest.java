@@ -16,6 +16,11 @@
 
 package gyro.core.scope;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gyro.core.FileBackend;
+import gyro.util.Bug;
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.*;
@@ -34,4 +39,34 @@ class FileScopeTest {
         assertThat(new FileScope(mock(RootScope.class), "foo").getFile()).isEqualTo("foo");
     }
 
-}
\ No newline at end of file
+    @Test
+    void findResource() {
+        RootScope root = new RootScope("", mock(FileBackend.class), null, null);
+        FileScope file = new FileScope(root, "foo");
+        TestResource resource = new TestResource("foo");
+
+        root.getFileScopes().add(file);
+        file.put(resource.primaryKey(), resource);
+
+        assertThat(root.findResource("test::resource::foo")).isSameAs(resource);
+
+        file.remove(resource.primaryKey());
+
+        assertThat(root.findResource("test::resource::foo")).isNull();
+    }
+
+    @Test
+    void findResourceCheck() {
+        RootScope root = new RootScope("", mock(FileBackend.class), null, null);
+        Map<String, Object> values = new LinkedHashMap<>();
+        FileScope file = new FileScope(root, "foo", values);
+        TestResource resource = new TestResource("foo");
+
+        root.getSettings(EvaluationSettings.class).setCheck(true);
+        root.getFileScopes().add(file);
+        values.put(resource.primaryKey(), resource);
+
+        assertThatExceptionOfType(Bug.class).isThrownBy(() -> root.findResource("test::resource::foo"));
+    }
+
+}
@@ -18,13 +18,18 @@ package gyro.core.scope;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import gyro.core.FileBackend;
 import gyro.core.GyroException;
 import gyro.core.reference.ReferenceSettings;
+import gyro.core.resource.DiffableInternals;
 import gyro.lang.ast.Node;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.ResourceNode;
 import gyro.lang.ast.value.ReferenceNode;
 import gyro.parser.antlr4.GyroParser;
 import org.junit.jupiter.api.BeforeEach;
@@ -73,6 +78,14 @@ class NodeEvaluatorTest {
                 assertThat(NodeEvaluator.getValue(null, ImmutableList.of("foo", "bar"), "size")).isEqualTo(2);
             }
 
+            @Test
+            void methodMissing() {
+                for (int i = 0; i < 2; i++) {
+                    assertThatExceptionOfType(GyroException.class)
+                        .isThrownBy(() -> NodeEvaluator.getValue(null, ImmutableList.of("foo"), "missing-method"));
+                }
+            }
+
         }
 
     }
@@ -247,6 +260,139 @@ class NodeEvaluatorTest {
 
         }
 
+        @Nested
+        class TypeNodeTest {
+
+            @BeforeEach
+            void beforeEach() {
+                evaluator.evaluate(root, Collections.emptyList());
+            }
+
+            private Node parse(String file) {
+                return ((FileNode) Node.parse(file, GyroParser::file)).getBody().get(0);
+            }
+
+            @Test
+            void pendingInTwoNodes() {
+                Node first = parse("test::resource a\nend\n");
+                Node second = parse("test::resource b\nend\n");
+
+                evaluator.addTypeNode(first, first);
+                evaluator.addTypeNode(second, second);
+                evaluator.removeTypeNode(first);
+
+                assertThat(evaluator.isTypePending("test::resource")).isTrue();
+
+                evaluator.removeTypeNode(second);
+
+                assertThat(evaluator.isTypePending("test::resource")).isFalse();
+            }
+
+            @Test
+            void pendingTwiceInOneNode() {
+                Node node = parse("test::resource a\n    test::resource b\n    end\nend\n");
+
+                evaluator.addTypeNode(node, node);
+                evaluator.addTypeNode(node, node);
+                evaluator.removeTypeNode(node);
+
+                assertThat(evaluator.isTypePending("test::resource")).isFalse();
+            }
+
+            @Test
+            void removeTwice() {
+                Node first = parse("test::resource a\nend\n");
+                Node second = parse("test::resource b\nend\n");
+
+                evaluator.addTypeNode(first, first);
+                evaluator.removeTypeNode(first);
+                evaluator.removeTypeNode(first);
+                evaluator.addTypeNode(second, second);
+
+                assertThat(evaluator.isTypePending("test::resource")).isTrue();
+            }
+
+            @Test
+            void wildcardDefer() {
+                Node node = parse("test::resource a\nend\n");
+                ReferenceNode reference = (ReferenceNode) Node.parse("$(test::resource f*)", GyroParser::reference);
+
+                root.put("test::resource", TestResource.class);
+                root.put("test::resource::foo", new TestResource("foo"));
+                evaluator.addTypeNode(node, node);
+
+                assertThatExceptionOfType(WildcardDefer.class)
+                    .isThrownBy(() -> evaluator.visitReference(reference, scope));
+
+                evaluator.removeTypeNode(node);
+
+                assertThat(evaluator.visitReference(reference, scope)).asList().hasSize(1);
+            }
+
+        }
+
+        @Nested
+        class EvaluateDiffableTest {
+
+            ResourceNode node;
+            TestResource other;
+
+            @BeforeEach
+            void beforeEach() {
+                node = (ResourceNode) ((FileNode) Node.parse(
+                    "test::resource a\n    foo: ['x']\n    other: $(test::resource b)\nend\n",
+                    GyroParser::file)).getBody().get(0);
+
+                other = new TestResource("b");
+
+                root.put("test::resource", TestResource.class);
+                root.put("test::resource::b", other);
+            }
+
+            @Test
+            void reuse() {
+                DiffableScope first = new DiffableScope(scope, node);
+
+                assertThat(evaluator.evaluateDiffable(node, first)).isTrue();
+
+                DiffableScope second = new DiffableScope(first);
+
+                assertThat(evaluator.evaluateDiffable(node, second)).isFalse();
+                assertThat(second.get("foo")).isEqualTo(first.get("foo"));
+                assertThat(second.get("foo")).isNotSameAs(first.get("foo"));
+                assertThat(second.get("other")).isSameAs(other);
+            }
+
+            @Test
+            @SuppressWarnings("unchecked")
+            void reuseCopy() {
+                DiffableScope first = new DiffableScope(scope, node);
+
+                evaluator.evaluateDiffable(node, first);
+                ((List<Object>) first.get("foo")).add("y");
+
+                DiffableScope second = new DiffableScope(first);
+
+                evaluator.evaluateDiffable(node, second);
+
+                assertThat(second.get("foo")).isEqualTo(Collections.singletonList("x"));
+            }
+
+            @Test
+            void reevaluateChanged() {
+                DiffableScope first = new DiffableScope(scope, node);
+
+                evaluator.evaluateDiffable(node, first);
+                DiffableInternals.incrementVersion(other);
+
+                DiffableScope second = new DiffableScope(first);
+
+                assertThat(evaluator.evaluateDiffable(node, second)).isTrue();
+                assertThat(second.get("foo")).isEqualTo(first.get("foo"));
+            }
+
+        }
+
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.List;
+
+import gyro.core.FileBackend;
+import gyro.lang.ast.Node;
+import gyro.lang.ast.PairNode;
+import gyro.lang.ast.block.DirectiveNode;
+import gyro.lang.ast.block.FileNode;
+import gyro.lang.ast.block.KeyBlockNode;
+import gyro.lang.ast.block.ResourceNode;
+import gyro.parser.antlr4.GyroParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OptimizerPreprocessorTest {
+
+    RootScope root;
+
+    @BeforeEach
+    void beforeEach() {
+        root = new RootScope("", mock(FileBackend.class), null, null);
+    }
+
+    private List<Node> preprocess(String text) {
+        FileNode file = (FileNode) Node.parse(text, GyroParser::file);
+
+        return new OptimizerPreprocessor().preprocess(file.getBody(), root);
+    }
+
+    @Test
+    void constantTrue() {
+        List<Node> nodes = preprocess("@if 1 < 2\n  foo: 'bar'\n-else\n  foo: 'qux'\n@end\n");
+
+        assertThat(nodes).hasSize(1);
+        assertThat(nodes.get(0)).isInstanceOf(PairNode.class);
+        assertThat(nodes.get(0).toString()).contains("bar");
+    }
+
+    @Test
+    void constantElse() {
+        List<Node> nodes = preprocess("@if 'a' = 'b'\n  foo: 'bar'\n-else\n  foo: 'qux'\n@end\n");
+
+        assertThat(nodes).hasSize(1);
+        assertThat(nodes.get(0).toString()).contains("qux");
+    }
+
+    @Test
+    void constantFalse() {
+        assertThat(preprocess("@if false\n  foo: 'bar'\n@end\nbar: 'foo'\n")).hasSize(1);
+    }
+
+    @Test
+    void notConstant() {
+        List<Node> nodes = preprocess("@if $(foo)\n  foo: 'bar'\n@end\n");
+
+        assertThat(nodes).hasSize(1);
+        assertThat(nodes.get(0)).isNotInstanceOf(PairNode.class);
+    }
+
+    @Test
+    void resourceBody() {
+        List<Node> nodes = preprocess("test::resource foo\n"
+            + "    @if true\n"
+            + "        bar: 'a'\n"
+            + "    @end\n"
+            + "    sub\n"
+            + "        @if false\n"
+            + "            bar: 'b'\n"
+            + "        @end\n"
+            + "    end\n"
+            + "end\n");
+
+        ResourceNode resource = (ResourceNode) nodes.get(0);
+
+        assertThat(resource.getType()).isEqualTo("test::resource");
+        assertThat(resource.getStartLine()).isEqualTo(0);
+        assertThat(resource.getBody().get(0)).isInstanceOf(PairNode.class);
+        assertThat(((KeyBlockNode) resource.getBody().get(1)).getBody()).isEmpty();
+    }
+
+    @Test
+    void directiveBody() {
+        List<Node> nodes = preprocess("@for i in [1, 2]\n"
+            + "    @if $(i) = 1\n"
+            + "        @if 1 = 1\n"
+            + "            foo: 'bar'\n"
+            + "        @end\n"
+            + "    -else\n"
+            + "        @if 1 = 2\n"
+            + "            foo: 'qux'\n"
+            + "        @end\n"
+            + "    @end\n"
+            + "@end\n");
+
+        DirectiveNode loop = (DirectiveNode) nodes.get(0);
+        DirectiveNode condition = (DirectiveNode) loop.getBody().get(0);
+
+        assertThat(loop.getArguments()).hasSize(3);
+        assertThat(condition.getBody().get(0)).isInstanceOf(PairNode.class);
+        assertThat(condition.getSections().get(0).getBody()).isEmpty();
+    }
+
+    @Test
+    void unchanged() {
+        FileNode file = (FileNode) Node.parse("test::resource foo\n    bar: $(baz)\nend\n", GyroParser::file);
+
+        assertThat(new OptimizerPreprocessor().preprocess(file.getBody(), root)).isSameAs(file.getBody());
+    }
+
+}
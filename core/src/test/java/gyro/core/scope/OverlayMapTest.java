@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class OverlayMapTest {
+
+    Map<String, Object> parent;
+    OverlayMap<String, Object> map;
+
+    @BeforeEach
+    void beforeEach() {
+        parent = new HashMap<>();
+        map = new OverlayMap<>(parent);
+
+        parent.put("foo", "bar");
+    }
+
+    @Test
+    void get() {
+        assertThat(map.get("foo")).isEqualTo("bar");
+        assertThat(map.containsKey("foo")).isTrue();
+    }
+
+    @Test
+    void put() {
+        assertThat(map.put("foo", "qux")).isEqualTo("bar");
+        assertThat(map.get("foo")).isEqualTo("qux");
+        assertThat(parent.get("foo")).isEqualTo("bar");
+    }
+
+    @Test
+    void entrySet() {
+        map.put("foo", "qux");
+        map.put("bar", "foo");
+
+        assertThat(map).hasSize(2).containsEntry("foo", "qux").containsEntry("bar", "foo");
+    }
+
+    @Test
+    void remove() {
+        map.put("foo", "qux");
+        map.remove("foo");
+
+        assertThat(map.get("foo")).isEqualTo("bar");
+    }
+
+}
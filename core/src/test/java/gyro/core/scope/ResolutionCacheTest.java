@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.util.HashMap;
+
+import gyro.core.FileBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResolutionCacheTest {
+
+    ResolutionCache cache;
+    RootScope root;
+    Scope parent;
+    Scope scope;
+
+    @BeforeEach
+    void beforeEach() {
+        cache = new ResolutionCache();
+        root = new RootScope("", mock(FileBackend.class), null, null);
+        parent = new Scope(root);
+        scope = new Scope(parent);
+
+        root.put("foo", "root");
+    }
+
+    @Test
+    void find() {
+        assertThat(cache.find(scope, null, "foo")).isEqualTo("root");
+        assertThat(cache.find(scope, null, "foo")).isEqualTo("root");
+    }
+
+    @Test
+    void findShadowed() {
+        assertThat(cache.find(scope, null, "foo")).isEqualTo("root");
+
+        parent.put("foo", "parent");
+
+        assertThat(cache.find(scope, null, "foo")).isEqualTo("parent");
+    }
+
+    @Test
+    void findChanged() {
+        assertThat(cache.find(scope, null, "foo")).isEqualTo("root");
+
+        root.put("foo", "changed");
+
+        assertThat(cache.find(scope, null, "foo")).isEqualTo("changed");
+    }
+
+    @Test
+    void findDiffable() {
+        FileScope file = new FileScope(root, "");
+        DiffableScope diffable = new DiffableScope(file, null);
+        Scope map = new Scope(diffable);
+
+        file.put("foo", "file");
+        diffable.put("foo", "diffable");
+
+        assertThat(cache.find(diffable, null, "foo")).isEqualTo("file");
+        assertThat(new ResolutionCache().find(map, null, "foo")).isEqualTo("diffable");
+        assertThat(new ResolutionCache().find(map, null, "foo")).isEqualTo(map.find(null, "foo"));
+    }
+
+    @Test
+    void findUnversioned() {
+        Scope unversioned = new Scope(parent, new HashMap<>());
+
+        unversioned.put("foo", "unversioned");
+
+        assertThat(cache.find(unversioned, null, "foo")).isEqualTo("unversioned");
+        assertThat(scope.isVersioned()).isTrue();
+        assertThat(unversioned.isVersioned()).isFalse();
+    }
+
+    @Test
+    void findSkipsDiffable() {
+        DiffableScope diffable = new DiffableScope(scope, null);
+
+        diffable.put("foo", "diffable");
+
+        assertThat(cache.find(diffable, null, "foo")).isEqualTo("root");
+    }
+
+    @Test
+    void findMissing() {
+        assertThatExceptionOfType(Defer.class).isThrownBy(() -> cache.find(scope, null, "bar"));
+    }
+
+}
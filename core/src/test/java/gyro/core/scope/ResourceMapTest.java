@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.resource.DiffableField;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.Id;
+import gyro.core.resource.Resource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ResourceMapTest {
+
+    ResourceMap map;
+    DiffableField idField;
+
+    @BeforeEach
+    void beforeEach() {
+        map = new ResourceMap();
+        idField = DiffableType.getInstance(IdResource.class).getIdField();
+    }
+
+    private IdResource put(String name, String id) {
+        IdResource resource = new IdResource(name);
+
+        resource.setId(id);
+        map.put(resource.primaryKey(), resource);
+        return resource;
+    }
+
+    @Test
+    void findByClass() {
+        IdResource foo = put("foo", "1");
+        TestResource bar = new TestResource("bar");
+
+        map.put(bar.primaryKey(), bar);
+
+        assertThat(map.findByClass(IdResource.class)).containsExactly(foo);
+        assertThat(map.findByClass(TestResource.class)).containsExactly(foo, bar);
+        assertThat(map.findByClass(Resource.class)).containsExactly(foo, bar);
+    }
+
+    @Test
+    void findByClassAfterRemove() {
+        IdResource foo = put("foo", "1");
+
+        map.remove(foo.primaryKey());
+
+        assertThat(map.findByClass(IdResource.class)).isEmpty();
+    }
+
+    @Test
+    void findById() {
+        IdResource foo = put("foo", "1");
+        IdResource bar = put("bar", "2");
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isSameAs(foo);
+        assertThat(map.findById(IdResource.class, idField, "2")).isSameAs(bar);
+        assertThat(map.findById(IdResource.class, idField, "3")).isNull();
+    }
+
+    @Test
+    void findByIdAfterChange() {
+        IdResource foo = put("foo", "1");
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isSameAs(foo);
+
+        foo.setId("2");
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isNull();
+        assertThat(map.findById(IdResource.class, idField, "2")).isSameAs(foo);
+    }
+
+    @Test
+    void findByIdAfterPutAndRemove() {
+        IdResource foo = put("foo", "1");
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isSameAs(foo);
+
+        IdResource bar = put("bar", "2");
+
+        assertThat(map.findById(IdResource.class, idField, "2")).isSameAs(bar);
+
+        map.remove(bar.primaryKey());
+
+        assertThat(map.findById(IdResource.class, idField, "2")).isNull();
+    }
+
+    @Test
+    void findByIdAfterCreate() {
+        IdResource foo = put("foo", null);
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isNull();
+
+        foo.setId("1");
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isSameAs(foo);
+    }
+
+    @Test
+    void findByIdAfterNewVersion() {
+        IdResource foo = put("foo", "1");
+
+        assertThat(map.findById(IdResource.class, idField, "1")).isSameAs(foo);
+
+        foo.setId("2");
+        DiffableInternals.incrementVersion(foo);
+
+        assertThat(map.findById(IdResource.class, idField, "2")).isSameAs(foo);
+    }
+
+    @Test
+    void findByNamePrefix() {
+        IdResource foo2 = put("foo2", "1");
+        IdResource bar = put("bar", "2");
+        IdResource foo1 = put("foo1", "3");
+
+        assertThat(map.findByNamePrefix("test::id-resource", "foo")).containsExactly(foo2, foo1);
+        assertThat(map.findByNamePrefix("test::id-resource", "")).containsExactly(foo2, bar, foo1);
+        assertThat(map.findByNamePrefix("test::resource", "")).isEmpty();
+    }
+
+    @Test
+    void findByNamePrefixAfterReplace() {
+        IdResource foo1 = put("foo1", "1");
+        IdResource foo2 = put("foo2", "2");
+        IdResource replaced = put("foo1", "3");
+
+        assertThat(map.findByNamePrefix("test::id-resource", "foo")).containsExactly(replaced, foo2);
+
+        map.remove(foo2.primaryKey());
+
+        assertThat(map.findByNamePrefix("test::id-resource", "foo")).containsExactly(replaced);
+        assertThat(foo1).isNotSameAs(replaced);
+    }
+
+    @Namespace("test")
+    @Type("id-resource")
+    public static class IdResource extends TestResource {
+
+        private String id;
+
+        public IdResource() {
+            this(null);
+        }
+
+        public IdResource(String name) {
+            super(name);
+        }
+
+        @Id
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+    }
+
+}
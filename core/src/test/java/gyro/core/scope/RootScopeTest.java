@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.scope;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import gyro.core.FileBackend;
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.Resource;
+import gyro.core.workflow.WorkflowSettings;
+import gyro.util.Bug;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RootScopeTest {
+
+    @Test
+    void evaluateBase() throws Exception {
+        FileBackend backend = mock(FileBackend.class);
+
+        when(backend.list()).thenAnswer(i -> Stream.empty());
+
+        RootScope base = new RootScope("", backend, null, null);
+
+        base.evaluate();
+
+        RootScope root = new RootScope("", backend, null, null);
+
+        root.evaluate(base);
+
+        assertThat(root.getBase()).isNull();
+    }
+
+    @Test
+    void fork() throws Exception {
+        FileBackend backend = mock(FileBackend.class);
+
+        when(backend.list()).thenAnswer(i -> Stream.of("a.gyro"));
+
+        when(backend.openInput(any())).thenAnswer(i -> new ByteArrayInputStream(
+            (i.<String>getArgument(0).equals("init.gyro")
+                ? "@evaluation: 'parallel'\nfoo: 'bar'\n"
+                : "@workflow::define 'test::evaluation' 'w'\n    stage 's'\n    end\n@end\n"
+                    + "test::evaluation a\n    value: $(foo)\nend\n").getBytes(StandardCharsets.UTF_8)));
+
+        RootScope base = new RootScope("init.gyro", backend, null, null);
+
+        base.put("test::evaluation", EvaluationResource.class);
+        base.evaluate();
+
+        RootScope fork = base.fork(null);
+
+        // The init file is only loaded once, and only what it loaded is shared.
+        verify(backend, times(1)).openInput("init.gyro");
+        assertThat(fork.getSettings(EvaluationSettings.class)).isSameAs(base.getSettings(EvaluationSettings.class));
+        assertThat(fork.getSettings(WorkflowSettings.class)).isNotSameAs(base.getSettings(WorkflowSettings.class));
+        assertThat(fork.getSettings(WorkflowSettings.class).getWorkflows()).hasSize(1);
+        assertThat(fork.get("foo")).isEqualTo("bar");
+        assertThat(describe(fork.findSortedResources())).isEqualTo(describe(base.findSortedResources()));
+        assertThat(describe(fork.findSortedResources())).asList().containsExactly("a(bar, null, null)");
+    }
+
+    @Test
+    void checkResource() {
+        RootScope root = new RootScope("", mock(FileBackend.class), null, null);
+        FileScope file = new FileScope(root, "");
+        TestResource resource = new TestResource("foo");
+
+        root.getSettings(EvaluationSettings.class).setCheck(true);
+        file.put("test::resource::foo", resource);
+
+        assertThatExceptionOfType(Bug.class).isThrownBy(() -> root.findResource("test::resource::foo"));
+
+        root.getPendingFileScopes().add(file);
+
+        assertThat(root.findResource("test::resource::foo")).isSameAs(resource);
+    }
+
+    @Test
+    void copyWorkflowOnlyRootScope() throws Exception {
+        FileBackend backend = mock(FileBackend.class);
+        RootScope root = new RootScope("init.gyro", backend, null, null);
+        TestSettings settings = root.getSettings(TestSettings.class);
+
+        root.put("foo", "bar");
+
+        RootScope copy = root.copyWorkflowOnlyRootScope();
+
+        assertThat(copy.getSettings(TestSettings.class)).isSameAs(settings);
+        assertThat(copy.get("foo")).isEqualTo("bar");
+        verify(backend, never()).openInput(any());
+    }
+
+    @Test
+    void evaluateParallel() throws Exception {
+        Map<String, Object> parallel = evaluateFiles(true);
+
+        // Parallel evaluations register the resources in the order of the files instead of the evaluation order.
+        assertThat(((Map<?, ?>) parallel.get("c.gyro")).get("all")).asList().containsExactly(
+            "a(null, c, null)",
+            "c(c, null, null)",
+            "d(d, null, null)",
+            "b(null, null, [c(c, null, null), d(d, null, null)])");
+
+        assertThat(ignoreOrder(parallel)).isEqualTo(ignoreOrder(evaluateFiles(false)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> ignoreOrder(Map<String, Object> results) {
+        ((Map<String, List<String>>) results.get("c.gyro")).get("all").sort(null);
+        ((List<String>) results.get("resources")).sort(null);
+        return results;
+    }
+
+    // Evaluates files with cross-file references, a deferred file and a directive, and describes the results.
+    private Map<String, Object> evaluateFiles(boolean parallel) throws Exception {
+        Map<String, String> files = new LinkedHashMap<>();
+
+        files.put("init.gyro", parallel ? "@evaluation: 'parallel'\n" : "");
+        files.put("a.gyro", "test::evaluation a\n    other: $(test::evaluation c)\nend\n");
+
+        files.put("b.gyro", "@for x -in ['c', 'd']\n"
+            + "    test::evaluation $(x)\n"
+            + "        value: $(x)\n"
+            + "    end\n"
+            + "@end\n"
+            + "test::evaluation b\n    others: $(test::evaluation c d)\nend\n");
+
+        files.put("c.gyro", "all: $(test::evaluation *)\n");
+
+        FileBackend backend = mock(FileBackend.class);
+
+        when(backend.list()).thenAnswer(i -> files.keySet().stream().filter(f -> !f.equals("init.gyro")));
+
+        when(backend.openInput(any())).thenAnswer(i -> new ByteArrayInputStream(
+            files.get(i.<String>getArgument(0)).getBytes(StandardCharsets.UTF_8)));
+
+        RootScope root = new RootScope("init.gyro", backend, null, null);
+
+        root.put("test::evaluation", EvaluationResource.class);
+        root.evaluate();
+
+        assertThat(root.getSettings(EvaluationSettings.class).isParallel()).isEqualTo(parallel);
+
+        Map<String, Object> results = new LinkedHashMap<>();
+
+        for (FileScope file : root.getFileScopes()) {
+            results.put(
+                file.getFile(),
+                file.entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, e -> describe(e.getValue()))));
+        }
+
+        results.put("resources", describe(root.findSortedResources()));
+        return results;
+    }
+
+    private Object describe(Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream().map(this::describe).collect(Collectors.toList());
+
+        } else if (value instanceof EvaluationResource) {
+            EvaluationResource resource = (EvaluationResource) value;
+
+            return String.format(
+                "%s(%s, %s, %s)",
+                DiffableInternals.getName(resource),
+                resource.getValue(),
+                resource.getOther() != null ? DiffableInternals.getName(resource.getOther()) : null,
+                describe(resource.getOthers()));
+
+        } else {
+            return value;
+        }
+    }
+
+    @Namespace("test")
+    @Type("evaluation")
+    public static class EvaluationResource extends Resource {
+
+        private String value;
+        private EvaluationResource other;
+        private List<EvaluationResource> others;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public EvaluationResource getOther() {
+            return other;
+        }
+
+        public void setOther(EvaluationResource other) {
+            this.other = other;
+        }
+
+        public List<EvaluationResource> getOthers() {
+            return others;
+        }
+
+        public void setOthers(List<EvaluationResource> others) {
+            this.others = others;
+        }
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+}
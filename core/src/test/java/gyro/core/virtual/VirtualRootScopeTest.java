@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.virtual;
+
+import gyro.core.FileBackend;
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.resource.DiffableInternals;
+import gyro.core.resource.Id;
+import gyro.core.scope.FileScope;
+import gyro.core.scope.RootScope;
+import gyro.core.scope.TestResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class VirtualRootScopeTest {
+
+    FileScope file;
+    VirtualRootScope virtual;
+
+    @BeforeEach
+    void beforeEach() {
+        RootScope root = new RootScope("", mock(FileBackend.class), null, null);
+
+        file = new FileScope(root, "test.gyro");
+        root.getFileScopes().add(file);
+        virtual = new VirtualRootScope(root, "v");
+    }
+
+    private IdResource put(String name, String id) {
+        IdResource resource = new IdResource(name);
+
+        resource.setId(id);
+        file.put(resource.primaryKey(), resource);
+        return resource;
+    }
+
+    @Test
+    void findResourceById() {
+        IdResource foo = put("v/foo", "1");
+
+        put("bar", "2");
+
+        assertThat(virtual.findResourceById(IdResource.class, "1")).isSameAs(foo);
+        assertThat(DiffableInternals.isExternal(virtual.findResourceById(IdResource.class, "2"))).isTrue();
+    }
+
+    @Test
+    void findResourcesByNamePrefix() {
+        IdResource foo = put("v/foo", "1");
+
+        put("bar", "2");
+
+        assertThat(virtual.findResourcesByNamePrefix("test::virtual-id-resource", "")).containsExactly(foo);
+        assertThat(virtual.findResourcesByNamePrefix("test::virtual-id-resource", "v/f")).containsExactly(foo);
+        assertThat(virtual.findResourcesByNamePrefix("test::virtual-id-resource", "b")).isEmpty();
+    }
+
+    @Namespace("test")
+    @Type("virtual-id-resource")
+    public static class IdResource extends TestResource {
+
+        private String id;
+
+        public IdResource() {
+            this(null);
+        }
+
+        public IdResource(String name) {
+            super(name);
+        }
+
+        @Id
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+    }
+
+}
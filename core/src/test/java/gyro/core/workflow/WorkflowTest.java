@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.core.workflow;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import gyro.core.FileBackend;
+import gyro.core.GyroUI;
+import gyro.core.Namespace;
+import gyro.core.Type;
+import gyro.core.resource.Resource;
+import gyro.core.scope.RootScope;
+import gyro.core.scope.State;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class WorkflowTest {
+
+    @Test
+    void copyRootScopeInCheckMode() {
+        MemoryBackend states = new MemoryBackend();
+        MemoryBackend configs = new MemoryBackend();
+
+        states.files.put("init.gyro", "@evaluation: 'check'\n");
+        states.files.put("main.gyro", "test::workflow a\nend\ntest::workflow temp\nend\n");
+        configs.files.put("init.gyro", "@evaluation: 'check'\n");
+        configs.files.put("main.gyro", "@workflow::define 'test::workflow' 'w'\n    stage 's'\n    end\n@end\n");
+
+        RootScope current = new RootScope("init.gyro", states, null, null);
+
+        current.put("test::workflow", WorkflowResource.class);
+        current.evaluate();
+
+        RootScope pending = new RootScope("init.gyro", configs, current, null);
+
+        pending.evaluate();
+
+        Workflow workflow = pending.getSettings(WorkflowSettings.class).getWorkflows().get(0);
+
+        assertThat(current.findResource("test::workflow::temp")).isNotNull();
+
+        // A stage deleted the temporary resource from the state.
+        states.files.put("main.gyro", "test::workflow a\nend\n");
+        workflow.copyRootScope();
+
+        assertThat(current.findResource("test::workflow::temp")).isNull();
+        assertThat(current.findResource("test::workflow::a")).isNotNull();
+
+        assertThat(current.findSortedResources().stream().map(Resource::primaryKey))
+            .containsExactly("test::workflow::a");
+    }
+
+    private static class MemoryBackend extends FileBackend {
+
+        private final Map<String, String> files = new ConcurrentHashMap<>();
+
+        @Override
+        public Stream<String> list() {
+            return files.keySet()
+                .stream()
+                .filter(f -> !f.equals("init.gyro"))
+                .sorted()
+                .collect(Collectors.toList())
+                .stream();
+        }
+
+        @Override
+        public InputStream openInput(String file) throws IOException {
+            String content = files.get(file);
+
+            if (content == null) {
+                throw new FileNotFoundException(file);
+            }
+
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public OutputStream openOutput(String file) {
+            return new ByteArrayOutputStream() {
+
+                @Override
+                public void close() {
+                    files.put(file, new String(toByteArray(), StandardCharsets.UTF_8));
+                }
+            };
+        }
+
+        @Override
+        public void delete(String file) {
+            files.remove(file);
+        }
+
+    }
+
+    @Namespace("test")
+    @Type("workflow")
+    public static class WorkflowResource extends Resource {
+
+        @Override
+        public boolean refresh() {
+            return false;
+        }
+
+        @Override
+        public void create(GyroUI ui, State state) {
+        }
+
+        @Override
+        public void update(GyroUI ui, State state, Resource current, Set<String> changedFieldNames) {
+        }
+
+        @Override
+        public void delete(GyroUI ui, State state) {
+        }
+
+    }
+
+}
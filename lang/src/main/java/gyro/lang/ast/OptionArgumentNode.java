@@ -21,6 +21,16 @@ public abstract class OptionArgumentNode extends Node {
         this.options = ImmutableList.copyOf(Preconditions.checkNotNull(options));
     }
 
+    /**
+     * Creates a copy of the given {@code node} at the same location.
+     */
+    public OptionArgumentNode(OptionArgumentNode node) {
+        super(Preconditions.checkNotNull(node).start, node.stop);
+
+        this.arguments = node.arguments;
+        this.options = node.options;
+    }
+
     public OptionArgumentNode(gyro.parser.antlr4.GyroParser.ReferenceContext context) {
         super(Preconditions.checkNotNull(context));
 
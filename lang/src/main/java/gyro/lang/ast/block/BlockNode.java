@@ -22,6 +22,7 @@ import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import gyro.lang.ast.Node;
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
 
 public abstract class BlockNode extends Node {
 
@@ -33,6 +34,12 @@ public abstract class BlockNode extends Node {
         this.body = ImmutableList.copyOf(Preconditions.checkNotNull(body));
     }
 
+    public BlockNode(Token start, Token stop, List<Node> body) {
+        super(start, stop);
+
+        this.body = ImmutableList.copyOf(Preconditions.checkNotNull(body));
+    }
+
     public List<Node> getBody() {
         return body;
     }
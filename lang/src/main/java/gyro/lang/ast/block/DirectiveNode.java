@@ -60,6 +60,18 @@ public class DirectiveNode extends OptionArgumentNode {
         this.body = Node.create(context.body());
     }
 
+    /**
+     * Creates a copy of the given {@code directive} at the same location but with the given {@code body} and
+     * {@code sections}.
+     */
+    public DirectiveNode(DirectiveNode directive, List<Node> body, List<DirectiveSection> sections) {
+        super(Preconditions.checkNotNull(directive));
+
+        this.name = directive.name;
+        this.sections = ImmutableList.copyOf(Preconditions.checkNotNull(sections));
+        this.body = ImmutableList.copyOf(Preconditions.checkNotNull(body));
+    }
+
     public String getName() {
         return name;
     }
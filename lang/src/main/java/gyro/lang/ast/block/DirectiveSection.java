@@ -48,6 +48,17 @@ public class DirectiveSection extends Rule {
         this.body = Node.create(context.body());
     }
 
+    /**
+     * Creates a copy of the given {@code section} at the same location but with the given {@code body}.
+     */
+    public DirectiveSection(DirectiveSection section, List<Node> body) {
+        super(Preconditions.checkNotNull(section).start, section.stop);
+
+        this.name = section.name;
+        this.arguments = section.arguments;
+        this.body = ImmutableList.copyOf(Preconditions.checkNotNull(body));
+    }
+
     public String getName() {
         return name;
     }
@@ -16,6 +16,8 @@
 
 package gyro.lang.ast.block;
 
+import java.util.List;
+
 import com.google.common.base.Preconditions;
 import gyro.lang.ast.Node;
 import gyro.lang.ast.NodeVisitor;
@@ -27,6 +29,13 @@ public class FileNode extends BlockNode {
         super(Preconditions.checkNotNull(context), Node.create(context.statement()));
     }
 
+    /**
+     * Creates a copy of the given {@code file} at the same location but with the given {@code body}.
+     */
+    public FileNode(FileNode file, List<Node> body) {
+        super(Preconditions.checkNotNull(file).start, file.stop, body);
+    }
+
     @Override
     public <C, R, X extends Throwable> R accept(NodeVisitor<C, R, X> visitor, C context) throws X {
         return visitor.visitFile(this, context);
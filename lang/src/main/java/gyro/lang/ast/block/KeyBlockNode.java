@@ -43,6 +43,16 @@ public class KeyBlockNode extends BlockNode {
         this.name = Optional.ofNullable(context.name()).map(Node::create).orElse(null);
     }
 
+    /**
+     * Creates a copy of the given {@code keyBlock} at the same location but with the given {@code body}.
+     */
+    public KeyBlockNode(KeyBlockNode keyBlock, List<Node> body) {
+        super(Preconditions.checkNotNull(keyBlock).start, keyBlock.stop, body);
+
+        this.key = keyBlock.key;
+        this.name = keyBlock.name;
+    }
+
     public String getKey() {
         return key;
     }
@@ -42,6 +42,16 @@ public class ResourceNode extends BlockNode {
         this.name = Node.create(context.name());
     }
 
+    /**
+     * Creates a copy of the given {@code resource} at the same location but with the given {@code body}.
+     */
+    public ResourceNode(ResourceNode resource, List<Node> body) {
+        super(Preconditions.checkNotNull(resource).start, resource.stop, body);
+
+        this.type = resource.type;
+        this.name = resource.name;
+    }
+
     public String getType() {
         return type;
     }
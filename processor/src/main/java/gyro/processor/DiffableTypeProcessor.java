@@ -0,0 +1,392 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.processor;
+
+import java.beans.Introspector;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a {@code gyro.core.resource.DiffableTypeMetadata} implementation for every concrete
+ * {@code gyro.core.resource.Diffable} subclass in the compiled sources, so that {@code DiffableType} doesn't have to
+ * introspect it at runtime.
+ *
+ * <p>Plugins can enable it by adding {@code gyro-processor} to their annotation processor path. Classes that can't be
+ * described at compile time, such as ones with type variables in their field types, are skipped and keep using
+ * reflection.</p>
+ */
+@SupportedAnnotationTypes("*")
+public class DiffableTypeProcessor extends AbstractProcessor {
+
+    static final String DIFFABLE_CLASS = "gyro.core.resource.Diffable";
+    static final String SUFFIX = "_DiffableTypeMetadata";
+
+    private static final Map<String, String> FLAGS_BY_ANNOTATION = new LinkedHashMap<>();
+
+    static {
+        FLAGS_BY_ANNOTATION.put("gyro.core.resource.Id", "ID");
+        FLAGS_BY_ANNOTATION.put("gyro.core.resource.Updatable", "UPDATABLE");
+        FLAGS_BY_ANNOTATION.put("gyro.core.resource.Calculated", "CALCULATED");
+        FLAGS_BY_ANNOTATION.put("gyro.core.resource.Immutable", "IMMUTABLE");
+        FLAGS_BY_ANNOTATION.put("gyro.core.resource.Output", "OUTPUT");
+        FLAGS_BY_ANNOTATION.put("gyro.core.validation.Required", "REQUIRED");
+    }
+
+    private Elements elements;
+    private Types types;
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement diffableElement = elements.getTypeElement(DIFFABLE_CLASS);
+
+        if (diffableElement != null) {
+            TypeMirror diffableType = types.erasure(diffableElement.asType());
+
+            for (Element element : roundEnv.getRootElements()) {
+                processElement(element, diffableType);
+            }
+        }
+
+        return false;
+    }
+
+    private void processElement(Element element, TypeMirror diffableType) {
+        if (!(element instanceof TypeElement) || element.getModifiers().contains(Modifier.PRIVATE)) {
+            return;
+        }
+
+        TypeElement typeElement = (TypeElement) element;
+
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            processElement(enclosed, diffableType);
+        }
+
+        if (typeElement.getKind() == ElementKind.CLASS
+            && !typeElement.getModifiers().contains(Modifier.ABSTRACT)
+            && typeElement.getTypeParameters().isEmpty()
+            && (!typeElement.getNestingKind().isNested() || typeElement.getModifiers().contains(Modifier.STATIC))
+            && types.isSubtype(types.erasure(typeElement.asType()), diffableType)) {
+
+            List<Field> fields = findFields(typeElement);
+
+            if (fields != null) {
+                write(typeElement, fields);
+
+            } else {
+                processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.NOTE,
+                    "Can't describe the fields at compile time, so they'll be found through reflection instead.",
+                    typeElement);
+            }
+        }
+    }
+
+    // Finds the same properties as Introspector would, or returns null if any of them can't be described.
+    private List<Field> findFields(TypeElement typeElement) {
+        Map<String, ExecutableElement> getters = new HashMap<>();
+        Map<String, List<ExecutableElement>> setters = new HashMap<>();
+
+        for (Element member : elements.getAllMembers(typeElement)) {
+            if (member.getKind() != ElementKind.METHOD
+                || !member.getModifiers().contains(Modifier.PUBLIC)
+                || member.getModifiers().contains(Modifier.STATIC)) {
+
+                continue;
+            }
+
+            ExecutableElement method = (ExecutableElement) member;
+            String name = method.getSimpleName().toString();
+            TypeMirror returnType = method.getReturnType();
+            int parameters = method.getParameters().size();
+
+            if (parameters == 0 && name.startsWith("is") && name.length() > 2
+                && returnType.getKind() == TypeKind.BOOLEAN) {
+
+                getters.put(Introspector.decapitalize(name.substring(2)), method);
+
+            } else if (parameters == 0 && name.startsWith("get") && name.length() > 3
+                && returnType.getKind() != TypeKind.VOID) {
+
+                getters.putIfAbsent(Introspector.decapitalize(name.substring(3)), method);
+
+            } else if (parameters == 1 && name.startsWith("set") && name.length() > 3
+                && returnType.getKind() == TypeKind.VOID) {
+
+                setters.computeIfAbsent(Introspector.decapitalize(name.substring(3)), k -> new ArrayList<>())
+                    .add(method);
+            }
+        }
+
+        Map<String, Field> fields = new TreeMap<>();
+
+        for (Map.Entry<String, ExecutableElement> entry : getters.entrySet()) {
+            String javaName = entry.getKey();
+            ExecutableElement getter = entry.getValue();
+            TypeMirror type = getter.getReturnType();
+
+            Optional<ExecutableElement> setter = Optional.ofNullable(setters.get(javaName))
+                .flatMap(s -> s.stream()
+                    .filter(m -> types.isSameType(m.getParameters().get(0).asType(), type))
+                    .findFirst());
+
+            if (!setter.isPresent()) {
+                continue;
+            }
+
+            Field field = new Field(javaName, getter, setter.get(), type);
+
+            if (!field.resolve()) {
+                return null;
+            }
+
+            fields.put(javaName, field);
+        }
+
+        return new ArrayList<>(fields.values());
+    }
+
+    private void write(TypeElement typeElement, List<Field> fields) {
+        String packageName = elements.getPackageOf(typeElement).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(typeElement).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+            .replace('$', '_') + SUFFIX;
+
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        if (!generated.add(qualifiedName)) {
+            return;
+        }
+
+        String diffableName = typeElement.getQualifiedName().toString();
+        StringBuilder source = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("// Generated by ").append(getClass().getName());
+        source.append(" from ").append(diffableName).append(".\n");
+        source.append("public final class ").append(simpleName);
+        source.append(" implements gyro.core.resource.DiffableTypeMetadata {\n\n");
+        source.append("    @Override\n");
+        source.append("    @SuppressWarnings({ \"unchecked\", \"rawtypes\" })\n");
+        source.append("    public java.util.List<gyro.core.resource.DiffableFieldMetadata> getFields() {\n");
+        source.append("        return java.util.Arrays.asList(");
+
+        for (int i = 0, size = fields.size(); i < size; i++) {
+            Field field = fields.get(i);
+
+            source.append(i > 0 ? ",\n" : "\n");
+            source.append("            new gyro.core.resource.DiffableFieldMetadata(\n");
+            source.append("                \"").append(field.javaName).append("\",\n");
+            source.append("                \"").append(field.getter.getSimpleName()).append("\",\n");
+            source.append("                ").append(field.typeName).append(".class,\n");
+            source.append("                ").append(field.collection).append(",\n");
+            source.append("                ").append(field.itemClassName).append(".class,\n");
+            source.append("                ").append(field.flags).append(",\n");
+            source.append("                d -> ((").append(diffableName).append(") d).")
+                .append(field.getter.getSimpleName()).append("(),\n");
+            source.append("                (d, v) -> ((").append(diffableName).append(") d).")
+                .append(field.setter.getSimpleName()).append("((").append(field.castName).append(") v))");
+        }
+
+        source.append(");\n");
+        source.append("    }\n\n");
+        source.append("}\n");
+
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, typeElement).openWriter()) {
+            writer.write(source.toString());
+
+        } catch (IOException error) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR,
+                String.format("Can't write %s! %s", qualifiedName, error.getMessage()),
+                typeElement);
+        }
+    }
+
+    // Returns the name to use in source for a type that's a Class at runtime, or null if it isn't one.
+    private String className(TypeMirror type) {
+        switch (type.getKind()) {
+            case BOOLEAN :
+            case BYTE :
+            case CHAR :
+            case DOUBLE :
+            case FLOAT :
+            case INT :
+            case LONG :
+            case SHORT :
+                return type.getKind().name().toLowerCase();
+
+            case ARRAY :
+                String componentName = className(((ArrayType) type).getComponentType());
+
+                return componentName != null ? componentName + "[]" : null;
+
+            case DECLARED :
+                DeclaredType declaredType = (DeclaredType) type;
+
+                if (!declaredType.getTypeArguments().isEmpty()
+                    || declaredType.getEnclosingType().getKind() == TypeKind.DECLARED) {
+
+                    return null;
+                }
+
+                return ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+
+            default :
+                return null;
+        }
+    }
+
+    private class Field {
+
+        public final String javaName;
+        public final ExecutableElement getter;
+        public final ExecutableElement setter;
+        public final TypeMirror type;
+        public String typeName;
+        public boolean collection;
+        public String itemClassName;
+        public String castName;
+        public String flags;
+
+        public Field(String javaName, ExecutableElement getter, ExecutableElement setter, TypeMirror type) {
+            this.javaName = javaName;
+            this.getter = getter;
+            this.setter = setter;
+            this.type = type;
+        }
+
+        // Mirrors the type analysis in the DiffableField constructor.
+        public boolean resolve() {
+            if (type.getKind().isPrimitive()) {
+                typeName = className(type);
+                collection = false;
+                itemClassName = typeName;
+                castName = ((TypeElement) types.boxedClass(types.getPrimitiveType(type.getKind())))
+                    .getQualifiedName()
+                    .toString();
+
+            } else if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+                DeclaredType declaredType = (DeclaredType) type;
+                TypeMirror rawType = types.erasure(type);
+
+                typeName = className(rawType);
+                collection = types.isAssignable(
+                    rawType,
+                    types.erasure(elements.getTypeElement("java.util.Collection").asType()));
+                itemClassName = className(declaredType.getTypeArguments().get(0));
+                castName = typeName;
+
+            } else {
+                typeName = className(type);
+                collection = false;
+                itemClassName = typeName;
+                castName = typeName;
+            }
+
+            if (typeName == null || itemClassName == null) {
+                return false;
+            }
+
+            List<String> names = new ArrayList<>();
+
+            for (Map.Entry<String, String> entry : FLAGS_BY_ANNOTATION.entrySet()) {
+                if (isAnnotationPresent(getter, entry.getKey())) {
+                    names.add("gyro.core.resource.DiffableFieldMetadata." + entry.getValue());
+                }
+            }
+
+            flags = names.isEmpty() ? "0" : String.join(" | ", names);
+            return true;
+        }
+
+        // Same as DiffableField#isAnnotationPresent, which also checks the method with the same name in the
+        // superclass of the declaring class.
+        private boolean isAnnotationPresent(ExecutableElement method, String annotationName) {
+            for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+                if (((TypeElement) annotation.getAnnotationType().asElement())
+                    .getQualifiedName()
+                    .contentEquals(annotationName)) {
+
+                    return true;
+                }
+            }
+
+            TypeMirror superclass = ((TypeElement) method.getEnclosingElement()).getSuperclass();
+
+            if (superclass.getKind() != TypeKind.DECLARED) {
+                return false;
+            }
+
+            for (Element member : elements.getAllMembers((TypeElement) types.asElement(superclass))) {
+                if (member.getKind() == ElementKind.METHOD
+                    && member.getModifiers().contains(Modifier.PUBLIC)
+                    && member.getSimpleName().equals(method.getSimpleName())
+                    && ((ExecutableElement) member).getParameters().isEmpty()) {
+
+                    return isAnnotationPresent((ExecutableElement) member, annotationName);
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.google.common.base.Preconditions;
+import gyro.core.resource.Diffable;
+import gyro.core.resource.DiffableField;
+import gyro.core.resource.DiffableType;
+import gyro.core.resource.DiffableTypeMetadata;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class DiffableTypeProcessorTest {
+
+    private static final String RESOURCE = String.join(
+        "\n",
+        "package test;",
+        "",
+        "import java.util.List;",
+        "import java.util.Map;",
+        "import java.util.Set;",
+        "",
+        "import gyro.core.GyroUI;",
+        "import gyro.core.Namespace;",
+        "import gyro.core.Type;",
+        "import gyro.core.resource.Diffable;",
+        "import gyro.core.resource.Id;",
+        "import gyro.core.resource.Output;",
+        "import gyro.core.resource.Resource;",
+        "import gyro.core.resource.Updatable;",
+        "import gyro.core.scope.State;",
+        "import gyro.core.validation.Required;",
+        "",
+        "@Namespace(\"test\")",
+        "@Type(\"processed\")",
+        "public class ProcessedResource extends BaseResource {",
+        "",
+        "    private boolean enabled;",
+        "    private int count;",
+        "    private List<Child> children;",
+        "    private Map<String, String> tags;",
+        "    private String[] names;",
+        "",
+        "    @Updatable",
+        "    public boolean isEnabled() { return enabled; }",
+        "    public void setEnabled(boolean enabled) { this.enabled = enabled; }",
+        "",
+        "    @Required",
+        "    public int getCount() { return count; }",
+        "    public void setCount(int count) { this.count = count; }",
+        "",
+        "    public List<Child> getChildren() { return children; }",
+        "    public void setChildren(List<Child> children) { this.children = children; }",
+        "",
+        "    public Map<String, String> getTags() { return tags; }",
+        "    public void setTags(Map<String, String> tags) { this.tags = tags; }",
+        "",
+        "    public String[] getNames() { return names; }",
+        "    public void setNames(String[] names) { this.names = names; }",
+        "",
+        "    public String getReadOnly() { return null; }",
+        "",
+        "    @Override",
+        "    public String getId() { return super.getId(); }",
+        "",
+        "    public boolean refresh() { return false; }",
+        "    public void create(GyroUI ui, State state) { }",
+        "    public void update(GyroUI ui, State state, Resource current, Set<String> names) { }",
+        "    public void delete(GyroUI ui, State state) { }",
+        "",
+        "    public static class Child extends Diffable {",
+        "",
+        "        private String value;",
+        "",
+        "        public String getValue() { return value; }",
+        "        public void setValue(String value) { this.value = value; }",
+        "        public String primaryKey() { return value; }",
+        "    }",
+        "}",
+        "",
+        "abstract class BaseResource extends Resource {",
+        "",
+        "    private String id;",
+        "",
+        "    @Id",
+        "    @Output",
+        "    public String getId() { return id; }",
+        "    public void setId(String id) { this.id = id; }",
+        "}",
+        "");
+
+    Path directory;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        directory = Files.createTempDirectory("gyro-processor");
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        Files.walk(directory)
+            .sorted(Comparator.reverseOrder())
+            .map(Path::toFile)
+            .forEach(File::delete);
+    }
+
+    @Test
+    void metadata() throws Exception {
+        Class<? extends Diffable> processed = compile("processed", true);
+        Class<? extends Diffable> reflected = compile("reflected", false);
+
+        assertThat(findMetadataClass(processed)).isNotNull();
+        assertThat(findMetadataClass(reflected)).isNull();
+        assertThat(describe(processed)).isEqualTo(describe(reflected));
+
+        DiffableType<? extends Diffable> type = DiffableType.getInstance(processed);
+        Diffable diffable = processed.newInstance();
+
+        type.getField("id").setValue(diffable, "foo");
+
+        assertThat(type.getField("count").getValue(diffable)).isEqualTo(0);
+        assertThat(type.getIdField().getValue(diffable)).isEqualTo("foo");
+        assertThat(type.getDiffableFields()).extracting(DiffableField::getName).containsExactly("children");
+    }
+
+    @Test
+    void genericFieldsFallBack() throws Exception {
+        String source = RESOURCE.replace(
+            "public class ProcessedResource extends BaseResource {",
+            "public class ProcessedResource extends BaseResource {\n"
+                + "    public List<? extends Child> getWildcards() { return null; }\n"
+                + "    public void setWildcards(List<? extends Child> wildcards) { }\n");
+
+        assertThat(findMetadataClass(compile("generic", true, source))).isNull();
+    }
+
+    private Class<? extends Diffable> compile(String name, boolean process) throws IOException {
+        return compile(name, process, RESOURCE);
+    }
+
+    private Class<? extends Diffable> compile(String name, boolean process, String source) throws IOException {
+        Path sourceDirectory = directory.resolve(name + "-source");
+        Path sourceFile = sourceDirectory.resolve("test/ProcessedResource.java");
+        Path outputDirectory = directory.resolve(name + "-output");
+
+        Files.createDirectories(sourceFile.getParent());
+        Files.createDirectories(outputDirectory);
+        Files.write(sourceFile, source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = classpath();
+
+        if (process) {
+            try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+                JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    fileManager,
+                    null,
+                    Arrays.asList("-proc:only", "-classpath", classpath, "-s", sourceDirectory.toString()),
+                    null,
+                    fileManager.getJavaFileObjects(sourceFile.toFile()));
+
+                task.setProcessors(Collections.singletonList(new DiffableTypeProcessor()));
+                assertThat(task.call()).isTrue();
+            }
+        }
+
+        List<String> compileArguments = Files.walk(sourceDirectory)
+            .filter(p -> p.toString().endsWith(".java"))
+            .map(Path::toString)
+            .collect(Collectors.toList());
+
+        compileArguments.addAll(0, Arrays.asList(
+            "-proc:none",
+            "-classpath",
+            classpath,
+            "-d",
+            outputDirectory.toString()));
+
+        assertThat(compiler.run(null, null, null, compileArguments.toArray(new String[0]))).isEqualTo(0);
+
+        ClassLoader loader = new URLClassLoader(
+            new URL[] { outputDirectory.toUri().toURL() },
+            getClass().getClassLoader());
+
+        try {
+            return Class.forName("test.ProcessedResource", true, loader).asSubclass(Diffable.class);
+
+        } catch (ClassNotFoundException error) {
+            throw new IllegalStateException(error);
+        }
+    }
+
+    // The test classpath might not be in java.class.path, depending on how the tests are launched.
+    private String classpath() {
+        return Stream.of(DiffableTypeProcessor.class, Diffable.class, Preconditions.class)
+            .map(c -> c.getProtectionDomain().getCodeSource().getLocation())
+            .map(u -> {
+                try {
+                    return Paths.get(u.toURI()).toString();
+
+                } catch (URISyntaxException error) {
+                    throw new IllegalStateException(error);
+                }
+            })
+            .reduce(System.getProperty("java.class.path"), (a, b) -> a + File.pathSeparator + b);
+    }
+
+    private Class<?> findMetadataClass(Class<?> diffableClass) {
+        try {
+            return Class.forName(
+                diffableClass.getName() + DiffableTypeMetadata.SUFFIX,
+                false,
+                diffableClass.getClassLoader());
+
+        } catch (ClassNotFoundException error) {
+            return null;
+        }
+    }
+
+    private List<String> describe(Class<? extends Diffable> diffableClass) {
+        DiffableType<? extends Diffable> type = DiffableType.getInstance(diffableClass);
+
+        return type.getFields()
+            .stream()
+            .map(f -> String.join(
+                " ",
+                f.getName(),
+                f == type.getIdField() ? "id" : "",
+                String.valueOf(f.isUpdatable()),
+                String.valueOf(f.isCalculated()),
+                String.valueOf(f.isImmutable()),
+                String.valueOf(f.isOutput()),
+                String.valueOf(f.isRequired()),
+                String.valueOf(f.isCollection()),
+                f.getItemClass().getName(),
+                String.valueOf(f.shouldBeDiffed())))
+            .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.util;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Map that looks up keys through a fixed list of layers, where the earlier layers shadow the later ones.
+ *
+ * <p>Unlike {@link CascadingMap}, a lookup checks each layer directly instead of streaming over them, and the
+ * flattened view used by {@link #entrySet()}, {@link #size()} and the like is cached until the map is written to.
+ * Writes go to the first layer, except for {@link #remove(Object)} and {@link #clear()} which apply to all layers.
+ * </p>
+ *
+ * <p>Writes made directly to a layer are detected through its size, or through its own writes if it's also a
+ * {@link LayeredMap}. Replacing the value of an existing key, or removing and adding the same number of keys in a
+ * single layer directly, isn't detected, so such writes should go through this map.</p>
+ */
+public class LayeredMap<K, V> extends AbstractMap<K, V> {
+
+    private final Map<K, V>[] layers;
+    private volatile int version;
+    private volatile Flattened<K, V> flattened;
+
+    /**
+     * @param layers Nonnull. Must contain at least one layer.
+     */
+    @SafeVarargs
+    public LayeredMap(Map<K, V>... layers) {
+        Preconditions.checkNotNull(layers);
+        Preconditions.checkArgument(layers.length > 0, "At least one layer is required!");
+
+        for (Map<K, V> layer : layers) {
+            Preconditions.checkNotNull(layer);
+        }
+
+        this.layers = layers.clone();
+    }
+
+    // Version of this map followed by the size of each layer, or the stamp of the layer if it's also a LayeredMap.
+    private int[] stamp() {
+        int[] stamp = new int[stampLength()];
+
+        fillStamp(stamp, 0);
+        return stamp;
+    }
+
+    private int stampLength() {
+        int length = 1;
+
+        for (Map<K, V> layer : layers) {
+            length += layer instanceof LayeredMap ? ((LayeredMap<K, V>) layer).stampLength() : 1;
+        }
+
+        return length;
+    }
+
+    private int fillStamp(int[] stamp, int index) {
+        stamp[index++] = version;
+
+        for (Map<K, V> layer : layers) {
+            if (layer instanceof LayeredMap) {
+                index = ((LayeredMap<K, V>) layer).fillStamp(stamp, index);
+
+            } else {
+                stamp[index++] = layer.size();
+            }
+        }
+
+        return index;
+    }
+
+    private Map<K, V> flatten() {
+        int[] stamp = stamp();
+        Flattened<K, V> f = flattened;
+
+        if (f == null || !Arrays.equals(f.stamp, stamp)) {
+            Map<K, V> map = new LinkedHashMap<>();
+
+            for (int i = layers.length - 1; i >= 0; i--) {
+                map.putAll(layers[i]);
+            }
+
+            f = new Flattened<>(stamp, Collections.unmodifiableMap(map));
+            flattened = f;
+        }
+
+        return f.map;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (Map<K, V> layer : layers) {
+            if (layer.containsKey(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public V get(Object key) {
+        for (Map<K, V> layer : layers) {
+            V value = layer.get(key);
+
+            if (value != null || layer.containsKey(key)) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Map<K, V> layer : layers) {
+            if (!layer.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return flatten().size();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return flatten().entrySet();
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V oldValue = get(key);
+
+        layers[0].put(key, value);
+        version++;
+        return oldValue;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> map) {
+        layers[0].putAll(map);
+        version++;
+    }
+
+    @Override
+    public V remove(Object key) {
+        V oldValue = get(key);
+
+        for (Map<K, V> layer : layers) {
+            layer.remove(key);
+        }
+
+        version++;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        for (Map<K, V> layer : layers) {
+            layer.clear();
+        }
+
+        version++;
+    }
+
+    private static class Flattened<K, V> {
+
+        public final int[] stamp;
+        public final Map<K, V> map;
+
+        public Flattened(int[] stamp, Map<K, V> map) {
+            this.stamp = stamp;
+            this.map = map;
+        }
+
+    }
+
+}
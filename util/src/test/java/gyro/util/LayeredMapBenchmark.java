@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares {@link LayeredMap} against {@link CascadingMap} in the way that {@code @for} uses them: a new map is
+ * created on top of the enclosing scope for each iteration, and looked up a few times.
+ *
+ * <p>Not part of the test suite. Run it directly with the test classpath.</p>
+ */
+public class LayeredMapBenchmark {
+
+    private static final int SCOPE_SIZE = 100;
+    private static final int ITERATIONS = 200_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String... arguments) {
+        Map<String, Object> scope = new LinkedHashMap<>();
+
+        for (int i = 0; i < SCOPE_SIZE; i++) {
+            scope.put("key" + i, i);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.printf(
+                "round %d: cascading %d ns/op, layered %d ns/op%n",
+                round,
+                run(scope, v -> new CascadingMap<>(scope, v)),
+                run(scope, v -> new LayeredMap<>(scope, v)));
+        }
+    }
+
+    private static long run(Map<String, Object> scope, Function<Map<String, Object>, Map<String, Object>> factory) {
+        long sink = 0;
+        long start = System.nanoTime();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            Map<String, Object> values = new LinkedHashMap<>();
+
+            values.put("item", i);
+
+            Map<String, Object> map = factory.apply(values);
+
+            sink += (Integer) map.get("item");
+            sink += (Integer) map.get("key" + (i % SCOPE_SIZE));
+
+            if (i % 10 == 0) {
+                sink += map.size();
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+
+        if (sink == 42) {
+            System.out.println();
+        }
+
+        return elapsed / ITERATIONS;
+    }
+
+}
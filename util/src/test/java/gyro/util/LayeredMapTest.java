@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020, Perfect Sense, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package gyro.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+class LayeredMapTest {
+
+    Map<String, Object> first;
+    Map<String, Object> second;
+    LayeredMap<String, Object> map;
+
+    @BeforeEach
+    void beforeEach() {
+        first = new LinkedHashMap<>();
+        second = new LinkedHashMap<>();
+        map = new LayeredMap<>(first, second);
+
+        first.put("foo", "first");
+        second.put("foo", "second");
+        second.put("bar", null);
+    }
+
+    @Test
+    void constructorEmpty() {
+        assertThatIllegalArgumentException().isThrownBy(() -> new LayeredMap<>());
+    }
+
+    @Test
+    void get() {
+        assertThat(map.get("foo")).isEqualTo("first");
+        assertThat(map.containsKey("bar")).isTrue();
+        assertThat(map.get("bar")).isNull();
+        assertThat(map.containsKey("qux")).isFalse();
+    }
+
+    @Test
+    void put() {
+        assertThat(map.put("bar", "first")).isNull();
+        assertThat(first).containsEntry("bar", "first");
+        assertThat(second).containsEntry("bar", null);
+    }
+
+    @Test
+    void remove() {
+        assertThat(map.remove("foo")).isEqualTo("first");
+        assertThat(first).isEmpty();
+        assertThat(second).doesNotContainKey("foo");
+    }
+
+    @Test
+    void entrySet() {
+        assertThat(map).hasSize(2).containsEntry("foo", "first").containsEntry("bar", null);
+    }
+
+    @Test
+    void entrySetAfterPut() {
+        assertThat(map).hasSize(2);
+
+        map.put("qux", "first");
+
+        assertThat(map).hasSize(3).containsEntry("qux", "first");
+    }
+
+    @Test
+    void entrySetAfterLayerPutAndRemove() {
+        for (int i = 0; i < 31; i++) {
+            second.put("key" + i, "second");
+        }
+
+        assertThat(map).hasSize(33);
+
+        // Would keep a hash of the sizes the same.
+        first.put("qux", "first");
+
+        for (int i = 0; i < 31; i++) {
+            second.remove("key" + i);
+        }
+
+        assertThat(map).hasSize(3).containsEntry("qux", "first");
+    }
+
+    @Test
+    void entrySetAfterLayerPut() {
+        assertThat(map).hasSize(2);
+
+        second.put("qux", "second");
+
+        assertThat(map).hasSize(3).containsEntry("qux", "second");
+    }
+
+    @Test
+    void entrySetAfterNestedPut() {
+        LayeredMap<String, Object> nested = new LayeredMap<>(new LinkedHashMap<>(), map);
+
+        assertThat(nested).hasSize(2);
+
+        map.put("foo", "replaced");
+
+        assertThat(nested).hasSize(2).containsEntry("foo", "replaced");
+    }
+
+}